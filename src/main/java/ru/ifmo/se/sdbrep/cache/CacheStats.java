@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * This class is used as snapshot of {@link ObjectCache}
+ * statistics.<br>
+ * Statistics of a tiered cache also contain statistics
+ * of each its tier.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class CacheStats {
+
+    private final String name;
+    private final int size;
+    private final long weight;
+    private final long capacity;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final List<CacheStats> tiers;
+
+    public CacheStats(String name, int size, long weight, long capacity,
+                      long hitCount, long missCount, long evictionCount) {
+        this(name, size, weight, capacity, hitCount, missCount, evictionCount, null);
+    }
+
+    public CacheStats(String name, int size, long weight, long capacity,
+                      long hitCount, long missCount, long evictionCount,
+                      List<CacheStats> tiers) {
+        this.name = name;
+        this.size = size;
+        this.weight = weight;
+        this.capacity = capacity;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.tiers = tiers;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public List<CacheStats> getTiers() {
+        return tiers;
+    }
+
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * This class is used as {@link ObjectCache} of mutable
+ * objects.<br>
+ * Objects are copied when put to and got from the underlying
+ * cache, so callers never share cached instances and changes
+ * made by one caller are not seen by others.
+ *
+ * @param <V> Cached objects type
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class CopyingObjectCache<V> implements ObjectCache<V> {
+
+    private final ObjectCache<V> mCache;
+    private final UnaryOperator<V> mCopier;
+
+    /**
+     * Creates new cache.
+     *
+     * @param cache Underlying cache
+     * @param copier Function creating deep copy of object
+     */
+    public CopyingObjectCache(ObjectCache<V> cache, UnaryOperator<V> copier) {
+        mCache = cache;
+        mCopier = copier;
+    }
+
+    @Override
+    public V get(String id) {
+        V value = mCache.get(id);
+        return value == null ? null : mCopier.apply(value);
+    }
+
+    @Override
+    public void put(String id, V value) {
+        mCache.put(id, mCopier.apply(value));
+    }
+
+    @Override
+    public void remove(String id) {
+        mCache.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        mCache.clear();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return mCache.getStats();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * This class is used as on-heap {@link ObjectCache}
+ * of mutable objects.<br>
+ * Objects are cached for a limited time after they
+ * were put, so changes made elsewhere are eventually
+ * seen. Capacity is limited the same way as in
+ * {@link LruObjectCache}.
+ *
+ * @param <V> Cached objects type
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class ExpiringObjectCache<V> implements ObjectCache<V> {
+
+    private final ObjectCache<Entry<V>> mEntries;
+    private final long mTimeToLive;
+
+    /**
+     * Creates new cache.
+     *
+     * @param name Cache name
+     * @param capacity Maximum total weight of cached objects, 0 disables caching
+     * @param timeToLive Time in milliseconds objects are cached for
+     * @param weigher Function estimating object weight in bytes
+     */
+    public ExpiringObjectCache(String name, long capacity, long timeToLive, ToLongFunction<V> weigher) {
+        mEntries = new LruObjectCache<>(name, capacity, entry -> weigher.applyAsLong(entry.mValue));
+        mTimeToLive = timeToLive;
+    }
+
+    @Override
+    public V get(String id) {
+        Entry<V> entry = mEntries.get(id);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.mExpiresAt < System.currentTimeMillis()) {
+            mEntries.remove(id);
+            return null;
+        }
+        return entry.mValue;
+    }
+
+    @Override
+    public void put(String id, V value) {
+        mEntries.put(id, new Entry<>(value, System.currentTimeMillis() + mTimeToLive));
+    }
+
+    @Override
+    public void remove(String id) {
+        mEntries.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        mEntries.clear();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return mEntries.getStats();
+    }
+
+    private static class Entry<V> {
+
+        private final V mValue;
+        private final long mExpiresAt;
+
+        private Entry(V value, long expiresAt) {
+            mValue = value;
+            mExpiresAt = expiresAt;
+        }
+    }
+}
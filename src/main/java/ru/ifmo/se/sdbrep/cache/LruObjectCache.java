@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class is used as on-heap {@link ObjectCache}.<br>
+ * Cache capacity is limited by total weight (estimated
+ * size in bytes) of cached objects, least recently used
+ * objects are evicted first.<br>
+ * Cache is split into segments by object id, each segment
+ * has its own lock and an equal share of the capacity, so
+ * concurrent reads of different objects rarely contend.
+ *
+ * @param <V> Cached objects type
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class LruObjectCache<V> implements ObjectCache<V> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final long MIN_SEGMENT_CAPACITY = 8 * 1024 * 1024;
+
+    private final String mName;
+    private final long mCapacity;
+    private final ToLongFunction<V> mWeigher;
+    private final Segment<V>[] mSegments;
+
+    /**
+     * Creates new cache.
+     *
+     * @param name Cache name
+     * @param capacity Maximum total weight of cached objects, 0 disables caching
+     * @param weigher Function estimating object weight in bytes
+     */
+    @SuppressWarnings("unchecked")
+    public LruObjectCache(String name, long capacity, ToLongFunction<V> weigher) {
+        mName = name;
+        mCapacity = capacity;
+        mWeigher = weigher;
+        int count = segmentCount(capacity);
+        mSegments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            mSegments[i] = new Segment<>(capacity / count);
+        }
+    }
+
+    @Override
+    public V get(String id) {
+        return segmentFor(id).get(id);
+    }
+
+    /**
+     * Puts object to the cache evicting least recently
+     * used objects of its segment if segment capacity is
+     * exceeded.<br>
+     * Objects heavier than the segment capacity are not cached.
+     *
+     * @param id Object id
+     * @param value Object
+     */
+    @Override
+    public void put(String id, V value) {
+        segmentFor(id).put(id, value, mWeigher.applyAsLong(value));
+    }
+
+    @Override
+    public void remove(String id) {
+        segmentFor(id).remove(id);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<V> segment : mSegments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        int size = 0;
+        long weight = 0, hitCount = 0, missCount = 0, evictionCount = 0;
+        for (Segment<V> segment : mSegments) {
+            synchronized (segment) {
+                size += segment.mEntries.size();
+                weight += segment.mWeight;
+                hitCount += segment.mHitCount;
+                missCount += segment.mMissCount;
+                evictionCount += segment.mEvictionCount;
+            }
+        }
+        return new CacheStats(mName, size, weight, mCapacity, hitCount, missCount, evictionCount);
+    }
+
+    /**
+     * Returns maximum weight of object the cache accepts.
+     *
+     * @return Segment capacity
+     */
+    long getMaxWeight() {
+        return mCapacity / mSegments.length;
+    }
+
+    /**
+     * Returns number of segments for the cache capacity,
+     * a power of two, so every segment fits objects of at
+     * least {@link #MIN_SEGMENT_CAPACITY} bytes.
+     *
+     * @param capacity Cache capacity
+     * @return Number of segments
+     */
+    static int segmentCount(long capacity) {
+        long count = Math.min(MAX_SEGMENTS, Math.max(1, capacity / MIN_SEGMENT_CAPACITY));
+        return Integer.highestOneBit((int) count);
+    }
+
+    /**
+     * Returns index of segment holding object.
+     *
+     * @param id Object id
+     * @param segments Number of segments, a power of two
+     * @return Segment index
+     */
+    static int segmentIndex(String id, int segments) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (segments - 1);
+    }
+
+    private Segment<V> segmentFor(String id) {
+        return mSegments[segmentIndex(id, mSegments.length)];
+    }
+
+    private static class Segment<V> {
+
+        private final long mCapacity;
+        private final LinkedHashMap<String, Entry<V>> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+        private long mWeight;
+
+        private long mHitCount;
+        private long mMissCount;
+        private long mEvictionCount;
+
+        private Segment(long capacity) {
+            mCapacity = capacity;
+        }
+
+        private synchronized V get(String id) {
+            Entry<V> entry = mEntries.get(id);
+            if (entry == null) {
+                mMissCount++;
+                return null;
+            }
+            mHitCount++;
+            return entry.mValue;
+        }
+
+        private synchronized void put(String id, V value, long weight) {
+            if (weight > mCapacity) {
+                return;
+            }
+            Entry<V> previous = mEntries.put(id, new Entry<>(value, weight));
+            if (previous != null) {
+                mWeight -= previous.mWeight;
+            }
+            mWeight += weight;
+            Iterator<Map.Entry<String, Entry<V>>> iterator = mEntries.entrySet().iterator();
+            while (mWeight > mCapacity && iterator.hasNext()) {
+                mWeight -= iterator.next().getValue().mWeight;
+                iterator.remove();
+                mEvictionCount++;
+            }
+        }
+
+        private synchronized void remove(String id) {
+            Entry<V> entry = mEntries.remove(id);
+            if (entry != null) {
+                mWeight -= entry.mWeight;
+            }
+        }
+
+        private synchronized void clear() {
+            mEntries.clear();
+            mWeight = 0;
+        }
+    }
+
+    private static class Entry<V> {
+
+        private final V mValue;
+        private final long mWeight;
+
+        private Entry(V value, long weight) {
+            mValue = value;
+            mWeight = weight;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+/**
+ * This interface contains methods that cache of immutable
+ * objects (e.g. trees and blobs) addressed by id must
+ * implement.
+ *
+ * @param <V> Cached objects type
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public interface ObjectCache<V> {
+
+    /**
+     * Gets cached object by id.
+     *
+     * @param id Object id
+     * @return Cached object or null if it is not cached
+     */
+    V get(String id);
+
+    /**
+     * Puts object to the cache.
+     *
+     * @param id Object id
+     * @param value Object
+     */
+    void put(String id, V value);
+
+    /**
+     * Removes object from the cache.
+     *
+     * @param id Object id
+     */
+    void remove(String id);
+
+    /**
+     * Removes all objects from the cache.
+     */
+    void clear();
+
+    /**
+     * Returns snapshot of cache statistics.
+     *
+     * @return {@link CacheStats} of this cache
+     */
+    CacheStats getStats();
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import java.nio.ByteBuffer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * This class is used as off-heap {@link ObjectCache}.<br>
+ * Objects are serialized to bytes and kept in direct
+ * buffers, so cached data does not grow the heap and
+ * is not scanned by the garbage collector. Capacity is
+ * limited by total size of the buffers, least recently
+ * used objects are evicted first.<br>
+ * Direct memory limit of the JVM (-XX:MaxDirectMemorySize)
+ * must be greater than cache capacity.
+ *
+ * @param <V> Cached objects type
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class OffHeapObjectCache<V> implements ObjectCache<V> {
+
+    private final LruObjectCache<ByteBuffer> mBuffers;
+    private final Function<V, byte[]> mSerializer;
+    private final BiFunction<String, byte[], V> mDeserializer;
+
+    /**
+     * Creates new cache.
+     *
+     * @param name Cache name
+     * @param capacity Maximum total size of cached objects in bytes, 0 disables caching
+     * @param serializer Function converting object to bytes
+     * @param deserializer Function restoring object from its id and bytes
+     */
+    public OffHeapObjectCache(String name, long capacity, Function<V, byte[]> serializer,
+                              BiFunction<String, byte[], V> deserializer) {
+        mBuffers = new LruObjectCache<>(name, capacity, ByteBuffer::capacity);
+        mSerializer = serializer;
+        mDeserializer = deserializer;
+    }
+
+    @Override
+    public V get(String id) {
+        ByteBuffer buffer = mBuffers.get(id);
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.capacity()];
+        buffer.duplicate().get(bytes);
+        return mDeserializer.apply(id, bytes);
+    }
+
+    @Override
+    public void put(String id, V value) {
+        byte[] bytes = mSerializer.apply(value);
+        if (bytes.length > mBuffers.getMaxWeight()) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        mBuffers.put(id, buffer);
+    }
+
+    @Override
+    public void remove(String id) {
+        mBuffers.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        mBuffers.clear();
+    }
+
+    @Override
+    public CacheStats getStats() {
+        return mBuffers.getStats();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import java.util.Arrays;
+
+/**
+ * This class is used as two-tier {@link ObjectCache}.<br>
+ * Objects are looked up in the first (fast and small)
+ * tier and then in the second one. Objects found in the
+ * second tier are promoted to the first one, new objects
+ * are put to both tiers.
+ *
+ * @param <V> Cached objects type
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class TieredObjectCache<V> implements ObjectCache<V> {
+
+    private final String mName;
+    private final ObjectCache<V> mFirstTier;
+    private final ObjectCache<V> mSecondTier;
+
+    /**
+     * Creates new cache.
+     *
+     * @param name Cache name
+     * @param firstTier First tier cache
+     * @param secondTier Second tier cache
+     */
+    public TieredObjectCache(String name, ObjectCache<V> firstTier, ObjectCache<V> secondTier) {
+        mName = name;
+        mFirstTier = firstTier;
+        mSecondTier = secondTier;
+    }
+
+    @Override
+    public V get(String id) {
+        V value = mFirstTier.get(id);
+        if (value == null) {
+            value = mSecondTier.get(id);
+            if (value != null) {
+                mFirstTier.put(id, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public void put(String id, V value) {
+        mFirstTier.put(id, value);
+        mSecondTier.put(id, value);
+    }
+
+    @Override
+    public void remove(String id) {
+        mFirstTier.remove(id);
+        mSecondTier.remove(id);
+    }
+
+    @Override
+    public void clear() {
+        mFirstTier.clear();
+        mSecondTier.clear();
+    }
+
+    /**
+     * Returns snapshot of cache statistics.<br>
+     * Hits of both tiers are counted as hits,
+     * misses of the second tier as misses.
+     *
+     * @return {@link CacheStats} of this cache and its tiers
+     */
+    @Override
+    public CacheStats getStats() {
+        CacheStats first = mFirstTier.getStats();
+        CacheStats second = mSecondTier.getStats();
+        return new CacheStats(mName, first.getSize() + second.getSize(),
+                first.getWeight() + second.getWeight(),
+                first.getCapacity() + second.getCapacity(),
+                first.getHitCount() + second.getHitCount(), second.getMissCount(),
+                first.getEvictionCount() + second.getEvictionCount(),
+                Arrays.asList(first, second));
+    }
+}
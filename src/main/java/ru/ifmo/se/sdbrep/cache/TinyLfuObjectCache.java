@@ -0,0 +1,316 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class is used as on-heap {@link ObjectCache} with
+ * W-TinyLFU eviction policy.<br>
+ * New objects are put to a small LRU window. Objects evicted
+ * from the window are admitted to the main LRU area only if
+ * they are accessed more frequently than the objects they
+ * would evict, so a scan over many objects accessed once
+ * does not flush the frequently used ones. Access frequency
+ * is estimated by a count-min sketch with periodically
+ * halved counters.<br>
+ * Cache is split into segments by object id like
+ * {@link LruObjectCache}.
+ *
+ * @param <V> Cached objects type
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class TinyLfuObjectCache<V> implements ObjectCache<V> {
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final long AVERAGE_WEIGHT = 256;
+    private static final int MIN_SKETCH_WIDTH = 1024;
+    private static final int MAX_SKETCH_WIDTH = 1 << 16;
+
+    private final String mName;
+    private final long mCapacity;
+    private final ToLongFunction<V> mWeigher;
+    private final Segment<V>[] mSegments;
+
+    /**
+     * Creates new cache.
+     *
+     * @param name Cache name
+     * @param capacity Maximum total weight of cached objects, 0 disables caching
+     * @param weigher Function estimating object weight in bytes
+     */
+    @SuppressWarnings("unchecked")
+    public TinyLfuObjectCache(String name, long capacity, ToLongFunction<V> weigher) {
+        mName = name;
+        mCapacity = capacity;
+        mWeigher = weigher;
+        int count = LruObjectCache.segmentCount(capacity);
+        mSegments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            mSegments[i] = new Segment<>(capacity / count);
+        }
+    }
+
+    @Override
+    public V get(String id) {
+        return segmentFor(id).get(id);
+    }
+
+    /**
+     * Puts object to the window of its segment, objects
+     * evicted from the window become candidates for the
+     * main area.<br>
+     * Objects heavier than the main area of the segment
+     * are not cached.
+     *
+     * @param id Object id
+     * @param value Object
+     */
+    @Override
+    public void put(String id, V value) {
+        segmentFor(id).put(id, value, mWeigher.applyAsLong(value));
+    }
+
+    @Override
+    public void remove(String id) {
+        segmentFor(id).remove(id);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment<V> segment : mSegments) {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        int size = 0;
+        long weight = 0, hitCount = 0, missCount = 0, evictionCount = 0;
+        for (Segment<V> segment : mSegments) {
+            synchronized (segment) {
+                size += segment.mWindow.size() + segment.mMain.size();
+                weight += segment.mWindowWeight + segment.mMainWeight;
+                hitCount += segment.mHitCount;
+                missCount += segment.mMissCount;
+                evictionCount += segment.mEvictionCount;
+            }
+        }
+        return new CacheStats(mName, size, weight, mCapacity, hitCount, missCount, evictionCount);
+    }
+
+    private Segment<V> segmentFor(String id) {
+        return mSegments[LruObjectCache.segmentIndex(id, mSegments.length)];
+    }
+
+    private static class Segment<V> {
+
+        private final long mWindowCapacity;
+        private final long mMainCapacity;
+        private final LinkedHashMap<String, Entry<V>> mWindow = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<String, Entry<V>> mMain = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch mSketch;
+        private long mWindowWeight;
+        private long mMainWeight;
+
+        private long mHitCount;
+        private long mMissCount;
+        private long mEvictionCount;
+
+        private Segment(long capacity) {
+            mWindowCapacity = capacity * WINDOW_PERCENT / 100;
+            mMainCapacity = capacity - mWindowCapacity;
+            long width = Math.max(MIN_SKETCH_WIDTH, Math.min(MAX_SKETCH_WIDTH, capacity / AVERAGE_WEIGHT));
+            mSketch = new FrequencySketch(Integer.highestOneBit((int) width));
+        }
+
+        private synchronized V get(String id) {
+            mSketch.increment(id);
+            Entry<V> entry = mWindow.get(id);
+            if (entry == null) {
+                entry = mMain.get(id);
+            }
+            if (entry == null) {
+                mMissCount++;
+                return null;
+            }
+            mHitCount++;
+            return entry.mValue;
+        }
+
+        private synchronized void put(String id, V value, long weight) {
+            if (weight > mMainCapacity) {
+                return;
+            }
+            remove(id);
+            mWindow.put(id, new Entry<>(value, weight));
+            mWindowWeight += weight;
+            Iterator<Map.Entry<String, Entry<V>>> iterator = mWindow.entrySet().iterator();
+            while (mWindowWeight > mWindowCapacity && iterator.hasNext()) {
+                Map.Entry<String, Entry<V>> candidate = iterator.next();
+                iterator.remove();
+                mWindowWeight -= candidate.getValue().mWeight;
+                admit(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        /**
+         * Moves candidate evicted from the window to the main
+         * area if it is used more frequently than all least
+         * recently used objects it has to evict, otherwise
+         * candidate is evicted itself.
+         *
+         * @param id Candidate id
+         * @param candidate Candidate entry
+         */
+        private void admit(String id, Entry<V> candidate) {
+            long free = mMainCapacity - mMainWeight;
+            List<String> victims = new ArrayList<>();
+            if (free < candidate.mWeight) {
+                int frequency = mSketch.frequency(id);
+                for (Map.Entry<String, Entry<V>> victim : mMain.entrySet()) {
+                    if (mSketch.frequency(victim.getKey()) >= frequency) {
+                        mEvictionCount++;
+                        return;
+                    }
+                    victims.add(victim.getKey());
+                    free += victim.getValue().mWeight;
+                    if (free >= candidate.mWeight) {
+                        break;
+                    }
+                }
+            }
+            for (String victim : victims) {
+                mMainWeight -= mMain.remove(victim).mWeight;
+                mEvictionCount++;
+            }
+            mMain.put(id, candidate);
+            mMainWeight += candidate.mWeight;
+        }
+
+        private synchronized void remove(String id) {
+            Entry<V> entry = mWindow.remove(id);
+            if (entry != null) {
+                mWindowWeight -= entry.mWeight;
+            }
+            entry = mMain.remove(id);
+            if (entry != null) {
+                mMainWeight -= entry.mWeight;
+            }
+        }
+
+        private synchronized void clear() {
+            mWindow.clear();
+            mMain.clear();
+            mWindowWeight = 0;
+            mMainWeight = 0;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters estimating how often
+     * objects were accessed. All counters are halved after
+     * a number of increments proportional to sketch width,
+     * so the estimate follows recent accesses.
+     */
+    static class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int RESET_FACTOR = 10;
+        private static final int[] SEEDS = {0x97cb3127, 0x5bd1e995, 0x85ebca6b, 0xc2b2ae35};
+
+        private final byte[][] mCounters;
+        private final int mResetSize;
+        private int mAdditions;
+
+        /**
+         * Creates new sketch.
+         *
+         * @param width Number of counters in a row, a power of two
+         */
+        FrequencySketch(int width) {
+            mCounters = new byte[DEPTH][width];
+            mResetSize = width * RESET_FACTOR;
+        }
+
+        void increment(String id) {
+            int hash = id.hashCode();
+            for (int i = 0; i < DEPTH; i++) {
+                byte[] row = mCounters[i];
+                int index = index(hash, i, row.length);
+                if (row[index] < MAX_COUNT) {
+                    row[index]++;
+                }
+            }
+            if (++mAdditions >= mResetSize) {
+                reset();
+            }
+        }
+
+        int frequency(String id) {
+            int hash = id.hashCode();
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < DEPTH; i++) {
+                byte[] row = mCounters[i];
+                frequency = Math.min(frequency, row[index(hash, i, row.length)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (byte[] row : mCounters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            mAdditions /= 2;
+        }
+
+        private static int index(int hash, int row, int width) {
+            int h = hash * SEEDS[row];
+            return (h ^ (h >>> 16)) & (width - 1);
+        }
+    }
+
+    private static class Entry<V> {
+
+        private final V mValue;
+        private final long mWeight;
+
+        private Entry(V value, long weight) {
+            mValue = value;
+            mWeight = weight;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.config;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.ifmo.se.sdbrep.cache.CopyingObjectCache;
+import ru.ifmo.se.sdbrep.cache.ExpiringObjectCache;
+import ru.ifmo.se.sdbrep.cache.ObjectCache;
+import ru.ifmo.se.sdbrep.cache.OffHeapObjectCache;
+import ru.ifmo.se.sdbrep.cache.TieredObjectCache;
+import ru.ifmo.se.sdbrep.cache.TinyLfuObjectCache;
+import ru.ifmo.se.sdbrep.model.Blob;
+import ru.ifmo.se.sdbrep.model.Profile;
+import ru.ifmo.se.sdbrep.model.Tree;
+import ru.ifmo.se.sdbrep.model.TreeEntry;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is used for configuration of in-memory
+ * caches of immutable code objects.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration
+public class CacheConfig {
+
+    private static final long OBJECT_OVERHEAD = 64;
+    private static final long ENTRY_OVERHEAD = 48;
+    private static final int BLOB_HEADER_SIZE = 5;
+    private static final int CHUNKED_HEADER_SIZE = 12;
+    private static final byte BINARY_FLAG = 1;
+    private static final byte CHUNKED_FLAG = 2;
+
+    @Value("${cache.trees.capacity}")
+    private long PROPERTY_TREES_CAPACITY;
+
+    @Value("${cache.blobs.capacity}")
+    private long PROPERTY_BLOBS_CAPACITY;
+
+    @Value("${cache.blobs.off-heap-capacity}")
+    private long PROPERTY_BLOBS_OFF_HEAP_CAPACITY;
+
+    @Value("${cache.users.capacity}")
+    private long PROPERTY_USERS_CAPACITY;
+
+    @Value("${cache.users.ttl}")
+    private long PROPERTY_USERS_TTL;
+
+    /**
+     * Creates trees cache, cached trees are copied
+     * on the way in and out.
+     *
+     * @return Trees cache
+     */
+    @Bean
+    public ObjectCache<Tree> treeCache() {
+        return new CopyingObjectCache<>(
+                new TinyLfuObjectCache<>("trees", PROPERTY_TREES_CAPACITY, CacheConfig::weigh),
+                CacheConfig::copy);
+    }
+
+    /**
+     * Creates blobs cache with on-heap tier for the hottest
+     * blobs and larger off-heap tier keeping blobs' code
+     * out of the garbage collected heap.<br>
+     * Cached blobs are copied on the way in and out.
+     *
+     * @return Blobs cache
+     */
+    @Bean
+    public ObjectCache<Blob> blobCache() {
+        // Direct memory is shared with database drivers, so cache takes half of it at most
+        long offHeapCapacity = Math.min(PROPERTY_BLOBS_OFF_HEAP_CAPACITY, maxDirectMemory() / 2);
+        return new CopyingObjectCache<>(new TieredObjectCache<>("blobs",
+                new TinyLfuObjectCache<>("blobs-heap", PROPERTY_BLOBS_CAPACITY, CacheConfig::weigh),
+                new OffHeapObjectCache<>("blobs-off-heap", offHeapCapacity,
+                        CacheConfig::serialize, CacheConfig::deserialize)),
+                CacheConfig::copy);
+    }
+
+    /**
+     * Creates cache of profiles loaded by username
+     * for authentication.<br>
+     * Profiles are cached for a short time, so changes
+     * made by other instances are seen soon. Cached
+     * profiles are copied on the way in and out.
+     *
+     * @return Users cache
+     */
+    @Bean
+    public ObjectCache<Profile> userCache() {
+        return new CopyingObjectCache<>(
+                new ExpiringObjectCache<>("users", PROPERTY_USERS_CAPACITY, PROPERTY_USERS_TTL, CacheConfig::weigh),
+                Profile::new);
+    }
+
+    /**
+     * Returns maximum size of direct buffers JVM may allocate,
+     * it equals maximum heap size unless set explicitly.
+     *
+     * @return Maximum direct memory size in bytes
+     */
+    private static long maxDirectMemory() {
+        try {
+            HotSpotDiagnosticMXBean diagnostic = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            long size = Long.parseLong(diagnostic.getVMOption("MaxDirectMemorySize").getValue());
+            if (size > 0) {
+                return size;
+            }
+        }
+        catch (RuntimeException e) {
+            // Not a HotSpot JVM, fall back to its default
+        }
+        return Runtime.getRuntime().maxMemory();
+    }
+
+    private static Tree copy(Tree tree) {
+        List<TreeEntry> entries = new ArrayList<>(tree.getEntries().size());
+        for (TreeEntry entry : tree.getEntries()) {
+            entries.add(new TreeEntry(entry.getName(), entry.getType(), entry.getObjectId()));
+        }
+        Tree copy = new Tree();
+        copy.setId(tree.getId());
+        copy.setEntries(entries);
+        return copy;
+    }
+
+    private static Blob copy(Blob blob) {
+        Blob copy = new Blob();
+        copy.setId(blob.getId());
+        copy.setContent(blob.getContent() == null ? null : blob.getContent().clone());
+        copy.setBinary(blob.isBinary());
+        copy.setSize(blob.getSize());
+        copy.setCompression(blob.getCompression());
+        copy.setBaseId(blob.getBaseId());
+        copy.setDepth(blob.getDepth());
+        copy.setChunkIds(blob.getChunkIds() == null ? null : new ArrayList<>(blob.getChunkIds()));
+        copy.setChunkSize(blob.getChunkSize());
+        return copy;
+    }
+
+    /**
+     * Estimates tree size in bytes.
+     *
+     * @param tree Tree
+     * @return Estimated size
+     */
+    private static long weigh(Tree tree) {
+        long weight = OBJECT_OVERHEAD + sizeOf(tree.getId());
+        for (TreeEntry entry : tree.getEntries()) {
+            weight += ENTRY_OVERHEAD + sizeOf(entry.getName()) + sizeOf(entry.getObjectId());
+        }
+        return weight;
+    }
+
+    /**
+     * Estimates profile size in bytes.
+     *
+     * @param profile Profile
+     * @return Estimated size
+     */
+    private static long weigh(Profile profile) {
+        return 2 * OBJECT_OVERHEAD + sizeOf(profile.getId()) + sizeOf(profile.getUsername()) +
+                sizeOf(profile.getPassword()) + sizeOf(profile.getFirstName()) +
+                sizeOf(profile.getLastName()) + sizeOf(profile.getBio());
+    }
+
+    /**
+     * Estimates blob size in bytes.
+     *
+     * @param blob Blob
+     * @return Estimated size
+     */
+    private static long weigh(Blob blob) {
+        long weight = 2 * OBJECT_OVERHEAD + sizeOf(blob.getId());
+        if (blob.isChunked()) {
+            for (String chunkId : blob.getChunkIds()) {
+                weight += sizeOf(chunkId);
+            }
+            return weight;
+        }
+        return weight + blob.getContent().length;
+    }
+
+    /**
+     * Serializes blob to its content prefixed with
+     * flags byte and delta depth. Chunked blobs are
+     * serialized to their size, chunk size and
+     * comma-separated chunk ids.
+     *
+     * @param blob Blob
+     * @return Serialized blob
+     */
+    private static byte[] serialize(Blob blob) {
+        byte flags = (byte) ((blob.isBinary() ? BINARY_FLAG : 0) | (blob.isChunked() ? CHUNKED_FLAG : 0));
+        byte[] content = blob.isChunked()
+                ? String.join(",", blob.getChunkIds()).getBytes(StandardCharsets.US_ASCII)
+                : blob.getContent();
+        ByteBuffer buffer = ByteBuffer.allocate(BLOB_HEADER_SIZE + content.length
+                + (blob.isChunked() ? CHUNKED_HEADER_SIZE : 0))
+                .put(flags)
+                .putInt(blob.getDepth());
+        if (blob.isChunked()) {
+            buffer.putLong(blob.getSize()).putInt(blob.getChunkSize());
+        }
+        return buffer.put(content).array();
+    }
+
+    private static Blob deserialize(String id, byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte flags = buffer.get();
+        Blob blob = new Blob();
+        blob.setId(id);
+        blob.setBinary((flags & BINARY_FLAG) != 0);
+        blob.setDepth(buffer.getInt());
+        if ((flags & CHUNKED_FLAG) != 0) {
+            blob.setSize(buffer.getLong());
+            blob.setChunkSize(buffer.getInt());
+            blob.setChunkIds(Arrays.asList(new String(bytes, buffer.position(), buffer.remaining(),
+                    StandardCharsets.US_ASCII).split(",")));
+        }
+        else {
+            blob.setContent(Arrays.copyOfRange(bytes, BLOB_HEADER_SIZE, bytes.length));
+            blob.setSize(blob.getContent().length);
+        }
+        return blob;
+    }
+
+    private static long sizeOf(String string) {
+        return string == null ? 0 : OBJECT_OVERHEAD + 2L * string.length();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is used for configuration of bounded
+ * executors running background work.<br>
+ * Commit tasks run with security context of the user
+ * who submitted them, tasks over queue capacity are
+ * rejected. Blob tasks over queue capacity are run by
+ * the submitting thread.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${executors.commits.threads}")
+    private int PROPERTY_COMMITS_THREADS;
+
+    @Value("${executors.commits.queue-capacity}")
+    private int PROPERTY_COMMITS_QUEUE_CAPACITY;
+
+    @Value("${executors.blobs.threads}")
+    private int PROPERTY_BLOBS_THREADS;
+
+    @Value("${executors.blobs.queue-capacity}")
+    private int PROPERTY_BLOBS_QUEUE_CAPACITY;
+
+    @Bean
+    public ExecutorService commitExecutor() {
+        return new DelegatingSecurityContextExecutorService(new ThreadPoolExecutor(
+                PROPERTY_COMMITS_THREADS, PROPERTY_COMMITS_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PROPERTY_COMMITS_QUEUE_CAPACITY)));
+    }
+
+    @Bean
+    public ExecutorService blobExecutor() {
+        return new ThreadPoolExecutor(PROPERTY_BLOBS_THREADS, PROPERTY_BLOBS_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(PROPERTY_BLOBS_QUEUE_CAPACITY), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import ru.ifmo.se.sdbrep.cache.CacheStats;
+import ru.ifmo.se.sdbrep.cache.ObjectCache;
+import ru.ifmo.se.sdbrep.model.Blob;
+import ru.ifmo.se.sdbrep.model.Tree;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class is a REST Controller for requests associated
+ * with application administration.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+
+    @Autowired
+    private ObjectCache<Tree> mTreeCache;
+
+    @Autowired
+    private ObjectCache<Blob> mBlobCache;
+
+    /**
+     * This endpoint returns statistics of code objects caches.
+     *
+     * @return 200 - OK
+     */
+    @RequestMapping(path = "/cache", method = RequestMethod.GET)
+    public ResponseEntity<List<CacheStats>> getCacheStats() {
+        return new ResponseEntity<>(Arrays.asList(mTreeCache.getStats(), mBlobCache.getStats()), HttpStatus.OK);
+    }
+}
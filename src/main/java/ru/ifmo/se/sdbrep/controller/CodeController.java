@@ -25,15 +25,28 @@
 package ru.ifmo.se.sdbrep.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.ifmo.se.sdbrep.model.Blob;
 import ru.ifmo.se.sdbrep.model.Branch;
 import ru.ifmo.se.sdbrep.model.Commit;
+import ru.ifmo.se.sdbrep.model.CommitJob;
 import ru.ifmo.se.sdbrep.model.InputFile;
-import ru.ifmo.se.sdbrep.model.Tree;
+import ru.ifmo.se.sdbrep.model.TreeView;
 import ru.ifmo.se.sdbrep.service.CodeService;
+import ru.ifmo.se.sdbrep.service.CommitJobService;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -48,19 +61,30 @@ import java.util.List;
 @RequestMapping("/api/project")
 public class CodeController {
 
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    private static final MediaType TEXT_PLAIN_UTF8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+    private static final String TAR_CONTENT_TYPE = "application/x-tar";
+
     @Autowired
     private CodeService mCodeService;
 
+    @Autowired
+    private CommitJobService mCommitJobService;
+
     /**
      * This endpoint returns code root tree from last commit in current
      * user's project on default branch.
      *
      * @param projectName Project name
+     * @param depth Number of tree levels to return, negative for all levels
+     * @param contents Whether files' code must be returned
      * @return 200 - OK, 400 - Bad request
      */
     @RequestMapping(path = "/{projectName}/code", method = RequestMethod.GET)
-    public ResponseEntity<Tree> getDefaultProjectCode(@PathVariable String projectName) {
-        Tree codeRoot = mCodeService.getTree(projectName, Branch.DEFAULT_BRANCH);
+    public ResponseEntity<TreeView> getDefaultProjectCode(@PathVariable String projectName,
+                                                          @RequestParam(defaultValue = "-1") int depth,
+                                                          @RequestParam(defaultValue = "true") boolean contents) {
+        TreeView codeRoot = mCodeService.getTree(projectName, Branch.DEFAULT_BRANCH, depth, contents);
         if (codeRoot != null) {
             return new ResponseEntity<>(codeRoot, HttpStatus.OK);
         }
@@ -73,12 +97,16 @@ public class CodeController {
      *
      * @param projectName Project name
      * @param branchName Branch name
+     * @param depth Number of tree levels to return, negative for all levels
+     * @param contents Whether files' code must be returned
      * @return 200 - OK, 400 - Bad request
      */
     @RequestMapping(path = "/{projectName}/code/{branchName}", method = RequestMethod.GET)
-    public ResponseEntity<Tree> getProjectCode(@PathVariable String projectName,
-                                               @PathVariable String branchName) {
-        Tree codeRoot = mCodeService.getTree(projectName, branchName);
+    public ResponseEntity<TreeView> getProjectCode(@PathVariable String projectName,
+                                                   @PathVariable String branchName,
+                                                   @RequestParam(defaultValue = "-1") int depth,
+                                                   @RequestParam(defaultValue = "true") boolean contents) {
+        TreeView codeRoot = mCodeService.getTree(projectName, branchName, depth, contents);
         if (codeRoot != null) {
             return new ResponseEntity<>(codeRoot, HttpStatus.OK);
         }
@@ -91,12 +119,16 @@ public class CodeController {
      *
      * @param username Username
      * @param projectName Project name
+     * @param depth Number of tree levels to return, negative for all levels
+     * @param contents Whether files' code must be returned
      * @return 200 - OK, 400 - Bad request
      */
     @RequestMapping(path = "/profile/{username}/{projectName}/code", method = RequestMethod.GET)
-    public ResponseEntity<Tree> getDefaultProjectCode(@PathVariable String username,
-                                                      @PathVariable String projectName) {
-        Tree codeRoot = mCodeService.getTree(username, projectName, Branch.DEFAULT_BRANCH);
+    public ResponseEntity<TreeView> getDefaultProjectCode(@PathVariable String username,
+                                                          @PathVariable String projectName,
+                                                          @RequestParam(defaultValue = "-1") int depth,
+                                                          @RequestParam(defaultValue = "true") boolean contents) {
+        TreeView codeRoot = mCodeService.getTree(username, projectName, Branch.DEFAULT_BRANCH, depth, contents);
         if (codeRoot != null) {
             return new ResponseEntity<>(codeRoot, HttpStatus.OK);
         }
@@ -110,19 +142,113 @@ public class CodeController {
      * @param username Username
      * @param projectName Project name
      * @param branchName Branch name
+     * @param depth Number of tree levels to return, negative for all levels
+     * @param contents Whether files' code must be returned
      * @return 200 - OK, 400 - Bad request
      */
     @RequestMapping(path = "/profile/{username}/{projectName}/code/{branchName}", method = RequestMethod.GET)
-    public ResponseEntity<Tree> getProjectCode(@PathVariable String username,
-                                               @PathVariable String projectName,
-                                               @PathVariable String branchName) {
-        Tree codeRoot = mCodeService.getTree(username, projectName, branchName);
+    public ResponseEntity<TreeView> getProjectCode(@PathVariable String username,
+                                                   @PathVariable String projectName,
+                                                   @PathVariable String branchName,
+                                                   @RequestParam(defaultValue = "-1") int depth,
+                                                   @RequestParam(defaultValue = "true") boolean contents) {
+        TreeView codeRoot = mCodeService.getTree(username, projectName, branchName, depth, contents);
         if (codeRoot != null) {
             return new ResponseEntity<>(codeRoot, HttpStatus.OK);
         }
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * This endpoint returns file or directory by path from
+     * last commit in current user's project on concrete branch.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param request HTTP request containing the path
+     * @return 200 - OK, 404 - Path not found
+     */
+    @RequestMapping(path = "/{projectName}/code/{branchName}/path/**", method = RequestMethod.GET)
+    public ResponseEntity<Object> getProjectCodeByPath(@PathVariable String projectName,
+                                                       @PathVariable String branchName,
+                                                       HttpServletRequest request) {
+        Object code = mCodeService.getByPath(projectName, branchName, extractPath(request));
+        if (code != null) {
+            return new ResponseEntity<>(code, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * This endpoint returns file or directory by path from
+     * last commit in concrete user's project on concrete branch.
+     *
+     * @param username Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param request HTTP request containing the path
+     * @return 200 - OK, 404 - Path not found
+     */
+    @RequestMapping(path = "/profile/{username}/{projectName}/code/{branchName}/path/**", method = RequestMethod.GET)
+    public ResponseEntity<Object> getProjectCodeByPath(@PathVariable String username,
+                                                       @PathVariable String projectName,
+                                                       @PathVariable String branchName,
+                                                       HttpServletRequest request) {
+        Object code = mCodeService.getByPath(username, projectName, branchName, extractPath(request));
+        if (code != null) {
+            return new ResponseEntity<>(code, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * This endpoint returns raw file content by path from last
+     * commit in current user's project on concrete branch.<br>
+     * Text files are returned as UTF-8 text, binary ones as
+     * octet stream. Single byte range may be requested with
+     * Range header.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param range Range header value
+     * @param request HTTP request containing the path
+     * @return 200 - OK, 206 - Partial content, 404 - File not found, 416 - Range not satisfiable
+     */
+    @RequestMapping(path = "/{projectName}/code/{branchName}/raw/**", method = RequestMethod.GET)
+    public ResponseEntity<InputStreamResource> getProjectFile(@PathVariable String projectName,
+                                                              @PathVariable String branchName,
+                                                              @RequestHeader(value = HttpHeaders.RANGE,
+                                                                      required = false) String range,
+                                                              HttpServletRequest request) {
+        Blob blob = mCodeService.getBlobByPath(projectName, branchName, extractPath(request));
+        return createFileResponse(blob, range);
+    }
+
+    /**
+     * This endpoint returns raw file content by path from last
+     * commit in concrete user's project on concrete branch.<br>
+     * Text files are returned as UTF-8 text, binary ones as
+     * octet stream. Single byte range may be requested with
+     * Range header.
+     *
+     * @param username Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param range Range header value
+     * @param request HTTP request containing the path
+     * @return 200 - OK, 206 - Partial content, 404 - File not found, 416 - Range not satisfiable
+     */
+    @RequestMapping(path = "/profile/{username}/{projectName}/code/{branchName}/raw/**", method = RequestMethod.GET)
+    public ResponseEntity<InputStreamResource> getProjectFile(@PathVariable String username,
+                                                              @PathVariable String projectName,
+                                                              @PathVariable String branchName,
+                                                              @RequestHeader(value = HttpHeaders.RANGE,
+                                                                      required = false) String range,
+                                                              HttpServletRequest request) {
+        Blob blob = mCodeService.getBlobByPath(username, projectName, branchName, extractPath(request));
+        return createFileResponse(blob, range);
+    }
+
     /**
      * This endpoint creates new branch above existing one
      * in current user's project.
@@ -172,7 +298,8 @@ public class CodeController {
      * @param branchName Branch name
      * @param files Files to modify
      * @param message Commit message
-     * @return 200 - OK, 400 - Bad request
+     * @return 200 - OK, 400 - Bad request,
+     * 409 - Nothing to commit or branch has been changed concurrently
      */
     @RequestMapping(path = "/{projectName}/commit/{branchName}", method = RequestMethod.POST)
     public ResponseEntity<Void> commit(@PathVariable String projectName,
@@ -193,7 +320,8 @@ public class CodeController {
      * @param branchName Branch name
      * @param files Files to modify
      * @param message Commit message
-     * @return 200 - OK, 400 - Bad request
+     * @return 200 - OK, 400 - Bad request,
+     * 409 - Nothing to commit or branch has been changed concurrently
      */
     @RequestMapping(path = "/profile/{username}/{projectName}/commit/{branchName}", method = RequestMethod.POST)
     public ResponseEntity<Void> commit(@PathVariable String username,
@@ -207,6 +335,162 @@ public class CodeController {
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * This endpoint submits new commit in current user's project
+     * to be created in background.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param files Files to modify
+     * @param message Commit message
+     * @return 202 - Accepted with commit job, 503 - Too many commits in progress
+     */
+    @RequestMapping(path = "/{projectName}/commit/{branchName}/async", method = RequestMethod.POST)
+    public ResponseEntity<CommitJob> commitAsync(@PathVariable String projectName,
+                                                 @PathVariable String branchName,
+                                                 @RequestBody List<InputFile> files,
+                                                 @RequestParam String message) {
+        CommitJob job = mCommitJobService.submit(projectName, branchName, files, message);
+        if (job != null) {
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        }
+        return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * This endpoint submits new commit in the project
+     * to be created in background.
+     *
+     * @param username Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param files Files to modify
+     * @param message Commit message
+     * @return 202 - Accepted with commit job, 503 - Too many commits in progress
+     */
+    @RequestMapping(path = "/profile/{username}/{projectName}/commit/{branchName}/async",
+            method = RequestMethod.POST)
+    public ResponseEntity<CommitJob> commitAsync(@PathVariable String username,
+                                                 @PathVariable String projectName,
+                                                 @PathVariable String branchName,
+                                                 @RequestBody List<InputFile> files,
+                                                 @RequestParam String message) {
+        CommitJob job = mCommitJobService.submit(username, projectName, branchName, files, message);
+        if (job != null) {
+            return new ResponseEntity<>(job, HttpStatus.ACCEPTED);
+        }
+        return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * This endpoint returns current stage of commit job
+     * submitted by current user, commit id is set when
+     * job is done, failure reason is set when job has failed.
+     *
+     * @param jobId Commit job id
+     * @return 200 - OK, 404 - Job not found
+     */
+    @RequestMapping(path = "/commit/jobs/{jobId}", method = RequestMethod.GET)
+    public ResponseEntity<CommitJob> getCommitJob(@PathVariable String jobId) {
+        CommitJob job = mCommitJobService.getById(jobId);
+        if (job != null) {
+            return new ResponseEntity<>(job, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * This endpoint creates new commit in current user's project
+     * from files of tar archive.<br>
+     * Archive is read while it is being uploaded, so its size
+     * is not limited by available memory.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param message Commit message
+     * @param archive Tar archive stream
+     * @return 200 - OK, 400 - Malformed archive, 404 - Project or branch not found,
+     * 409 - Nothing to commit or branch has been changed concurrently
+     */
+    @RequestMapping(path = "/{projectName}/commit/{branchName}/archive", method = RequestMethod.POST,
+            consumes = TAR_CONTENT_TYPE)
+    public ResponseEntity<Void> commitArchive(@PathVariable String projectName,
+                                              @PathVariable String branchName,
+                                              @RequestParam String message,
+                                              InputStream archive) {
+        if (mCodeService.commit(projectName, branchName, archive, message) != null) {
+            return new ResponseEntity<>(HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * This endpoint creates new commit in the project
+     * from files of tar archive.<br>
+     * Archive is read while it is being uploaded, so its size
+     * is not limited by available memory.
+     *
+     * @param username Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param message Commit message
+     * @param archive Tar archive stream
+     * @return 200 - OK, 400 - Malformed archive, 404 - Project or branch not found,
+     * 409 - Nothing to commit or branch has been changed concurrently
+     */
+    @RequestMapping(path = "/profile/{username}/{projectName}/commit/{branchName}/archive",
+            method = RequestMethod.POST, consumes = TAR_CONTENT_TYPE)
+    public ResponseEntity<Void> commitArchive(@PathVariable String username,
+                                              @PathVariable String projectName,
+                                              @PathVariable String branchName,
+                                              @RequestParam String message,
+                                              InputStream archive) {
+        if (mCodeService.commit(username, projectName, branchName, archive, message) != null) {
+            return new ResponseEntity<>(HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * This endpoint finds which blobs have not been committed to
+     * current user's project yet. Files with committed blobs
+     * may be committed by blob id without content.
+     *
+     * @param projectName Project name
+     * @param blobIds Blob ids (SHA-256 of file contents)
+     * @return 200 - OK with missing blob ids, 400 - Bad request
+     */
+    @RequestMapping(path = "/{projectName}/blobs/missing", method = RequestMethod.POST)
+    public ResponseEntity<List<String>> getMissingBlobIds(@PathVariable String projectName,
+                                                          @RequestBody List<String> blobIds) {
+        List<String> missingIds = mCodeService.getMissingBlobIds(projectName, blobIds);
+        if (missingIds != null) {
+            return new ResponseEntity<>(missingIds, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * This endpoint finds which blobs have not been committed to
+     * the project yet. Files with committed blobs may be
+     * committed by blob id without content.
+     *
+     * @param username Username
+     * @param projectName Project name
+     * @param blobIds Blob ids (SHA-256 of file contents)
+     * @return 200 - OK with missing blob ids, 400 - Bad request
+     */
+    @RequestMapping(path = "/profile/{username}/{projectName}/blobs/missing", method = RequestMethod.POST)
+    public ResponseEntity<List<String>> getMissingBlobIds(@PathVariable String username,
+                                                          @PathVariable String projectName,
+                                                          @RequestBody List<String> blobIds) {
+        List<String> missingIds = mCodeService.getMissingBlobIds(username, projectName, blobIds);
+        if (missingIds != null) {
+            return new ResponseEntity<>(missingIds, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * This endpoint gets the last commit in current user's project
      * on concrete branch.
@@ -244,4 +528,62 @@ public class CodeController {
         }
         return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
     }
+
+    /**
+     * Creates response streaming blob content or its
+     * range. Invalid and multiple ranges are ignored.
+     *
+     * @param blob Blob
+     * @param range Range header value, may be null
+     * @return 200 - OK, 206 - Partial content, 404 - Blob is null, 416 - Range not satisfiable
+     */
+    private ResponseEntity<InputStreamResource> createFileResponse(Blob blob, String range) {
+        if (blob == null) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(blob.isBinary() ? MediaType.APPLICATION_OCTET_STREAM : TEXT_PLAIN_UTF8);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(range);
+        }
+        catch (IllegalArgumentException e) {
+            ranges = Collections.emptyList();
+        }
+        if (ranges.size() != 1) {
+            headers.setContentLength(blob.getSize());
+            return new ResponseEntity<>(new InputStreamResource(mCodeService.getBlobContent(blob)),
+                    headers, HttpStatus.OK);
+        }
+
+        long start;
+        long end;
+        try {
+            start = ranges.get(0).getRangeStart(blob.getSize());
+            end = ranges.get(0).getRangeEnd(blob.getSize());
+        }
+        catch (IllegalArgumentException e) {
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + blob.getSize());
+            return new ResponseEntity<>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        }
+        headers.setContentLength(end - start + 1);
+        headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + blob.getSize());
+        return new ResponseEntity<>(new InputStreamResource(mCodeService.getBlobContent(blob, start, end - start + 1)),
+                headers, HttpStatus.PARTIAL_CONTENT);
+    }
+
+    /**
+     * Extracts part of request path matched by "**".
+     *
+     * @param request HTTP request
+     * @return Path within matched pattern
+     */
+    private static String extractPath(HttpServletRequest request) {
+        String path = (String) request.getAttribute(HandlerMapping.PATH_WITHIN_HANDLER_MAPPING_ATTRIBUTE);
+        String pattern = (String) request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String extractedPath = PATH_MATCHER.extractPathWithinPattern(pattern, path);
+        return path.endsWith("/") ? extractedPath + "/" : extractedPath;
+    }
 }
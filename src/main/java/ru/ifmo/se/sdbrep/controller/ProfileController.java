@@ -30,6 +30,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.ifmo.se.sdbrep.model.Log;
 import ru.ifmo.se.sdbrep.model.Profile;
+import ru.ifmo.se.sdbrep.model.ProfileSummary;
 import ru.ifmo.se.sdbrep.service.LogService;
 import ru.ifmo.se.sdbrep.service.ProfileService;
 
@@ -68,12 +69,12 @@ public class ProfileController {
      * This endpoint returns user profile by username.
      *
      * @param username Username
-     * @return {@link Profile} entity and response code (200 - OK, 404 - User not found)
+     * @return {@link ProfileSummary} entity and response code (200 - OK, 404 - User not found)
      */
     @RequestMapping(path = "/{username}", method = RequestMethod.GET)
-    public ResponseEntity<Profile> getProfile(@PathVariable String username) {
-        Profile profile;
-        if ((profile = mProfileService.getByUsername(username)) != null) {
+    public ResponseEntity<ProfileSummary> getProfile(@PathVariable String username) {
+        ProfileSummary profile;
+        if ((profile = mProfileService.getSummaryByUsername(username)) != null) {
             return new ResponseEntity<>(profile, HttpStatus.OK);
         }
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
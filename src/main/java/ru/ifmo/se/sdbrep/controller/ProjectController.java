@@ -29,6 +29,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.ifmo.se.sdbrep.model.Project;
+import ru.ifmo.se.sdbrep.model.ProjectSummary;
 import ru.ifmo.se.sdbrep.service.ProjectService;
 
 import java.util.List;
@@ -55,7 +56,7 @@ public class ProjectController {
      * @return 200 - OK
      */
     @RequestMapping(path = "", method = RequestMethod.GET)
-    public ResponseEntity<List<Project>> getAllProjects() {
+    public ResponseEntity<List<ProjectSummary>> getAllProjects() {
         return new ResponseEntity<>(mProjectService.getAllCurrent(), HttpStatus.OK);
     }
 
@@ -66,7 +67,7 @@ public class ProjectController {
      * @return 200 - OK
      */
     @RequestMapping(path = "/profile/{username}", method = RequestMethod.GET)
-    public ResponseEntity<List<Project>> getAllProjects(@PathVariable String username) {
+    public ResponseEntity<List<ProjectSummary>> getAllProjects(@PathVariable String username) {
         return new ResponseEntity<>(mProjectService.getAllByProfileUsername(username), HttpStatus.OK);
     }
 
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.ifmo.se.sdbrep.model.Commit;
+import ru.ifmo.se.sdbrep.model.UploadSession;
+import ru.ifmo.se.sdbrep.service.UploadService;
+
+/**
+ * This class is a REST Controller for requests associated
+ * with resumable commit uploads.<br>
+ * Tar archive of a commit is sent in numbered chunks,
+ * upload may be resumed from session's chunk count.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@RestController
+@RequestMapping("/api/upload")
+public class UploadController {
+
+    @Autowired
+    private UploadService mUploadService;
+
+    /**
+     * This endpoint creates upload session for commit
+     * to current user's project.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @return 201 - Created, 400 - Bad request
+     */
+    @RequestMapping(path = "/project/{projectName}/{branchName}", method = RequestMethod.POST)
+    public ResponseEntity<UploadSession> createSession(@PathVariable String projectName,
+                                                       @PathVariable String branchName) {
+        UploadSession session = mUploadService.create(projectName, branchName);
+        if (session != null) {
+            return new ResponseEntity<>(session, HttpStatus.CREATED);
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * This endpoint creates upload session for commit
+     * to concrete user's project.
+     *
+     * @param username Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @return 201 - Created, 400 - Bad request
+     */
+    @RequestMapping(path = "/profile/{username}/{projectName}/{branchName}", method = RequestMethod.POST)
+    public ResponseEntity<UploadSession> createSession(@PathVariable String username,
+                                                       @PathVariable String projectName,
+                                                       @PathVariable String branchName) {
+        UploadSession session = mUploadService.create(username, projectName, branchName);
+        if (session != null) {
+            return new ResponseEntity<>(session, HttpStatus.CREATED);
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * This endpoint returns upload session with
+     * acknowledged chunk count and size.
+     *
+     * @param id Session id
+     * @return 200 - OK, 404 - Session not found
+     */
+    @RequestMapping(path = "/{id}", method = RequestMethod.GET)
+    public ResponseEntity<UploadSession> getSession(@PathVariable String id) {
+        UploadSession session = mUploadService.getById(id);
+        if (session != null) {
+            return new ResponseEntity<>(session, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * This endpoint adds chunk to upload session.
+     *
+     * @param id Session id
+     * @param index Chunk index starting from 0
+     * @param content Chunk content
+     * @return 200 - OK, 400 - Bad request
+     */
+    @RequestMapping(path = "/{id}/{index}", method = RequestMethod.PUT,
+            consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSession> putChunk(@PathVariable String id,
+                                                  @PathVariable int index,
+                                                  @RequestBody byte[] content) {
+        UploadSession session = mUploadService.putChunk(id, index, content);
+        if (session != null) {
+            return new ResponseEntity<>(session, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * This endpoint creates commit from uploaded
+     * archive and finishes upload session.
+     *
+     * @param id Session id
+     * @param message Commit message
+     * @return 200 - OK, 400 - Bad request,
+     * 409 - Nothing to commit or branch has been changed concurrently
+     */
+    @RequestMapping(path = "/{id}/commit", method = RequestMethod.POST)
+    public ResponseEntity<Commit> commit(@PathVariable String id,
+                                         @RequestParam String message) {
+        Commit commit = mUploadService.commit(id, message);
+        if (commit != null) {
+            return new ResponseEntity<>(commit, HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * This endpoint cancels upload session.
+     *
+     * @param id Session id
+     * @return 200 - OK, 404 - Session not found
+     */
+    @RequestMapping(path = "/{id}", method = RequestMethod.DELETE)
+    public ResponseEntity<Void> deleteSession(@PathVariable String id) {
+        if (mUploadService.delete(id)) {
+            return new ResponseEntity<>(HttpStatus.OK);
+        }
+        return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+}
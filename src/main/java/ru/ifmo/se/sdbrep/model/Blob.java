@@ -27,8 +27,21 @@ package ru.ifmo.se.sdbrep.model;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.List;
+
 /**
- * This class is used as blob entity.
+ * This class is used as blob entity.<br>
+ * Blob id is a hash of its content, so equal files
+ * are stored only once. File names are kept in
+ * {@link TreeEntry} entities.<br>
+ * Content is stored as raw bytes, binary flag is set
+ * when content is not a valid UTF-8 text. Stored content
+ * may be compressed, loaded blobs are always decompressed.<br>
+ * Stored content may also be a delta against the base blob
+ * (usually previous version of the same file), depth is the
+ * length of delta chain, 0 for blobs stored in full.<br>
+ * Content of large blobs is stored in {@link BlobChunk}
+ * entities, such blobs contain only ids of their chunks.
  *
  * @author seniorkot
  * @version 1.0
@@ -37,11 +50,26 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @Document(collection = "blobs")
 public class Blob {
 
+    /**
+     * This enum contains compressions of stored
+     * blob content.
+     */
+    public enum Compression {
+        NONE,
+        DEFLATE
+    }
+
     @Id
     private String id;
 
-    private String fileName;
-    private String code;
+    private byte[] content;
+    private boolean binary;
+    private long size;
+    private Compression compression = Compression.NONE;
+    private String baseId;
+    private int depth;
+    private List<String> chunkIds;
+    private int chunkSize;
 
     public Blob() {
 
@@ -55,20 +83,77 @@ public class Blob {
         this.id = id;
     }
 
-    public String getFileName() {
-        return fileName;
+    public byte[] getContent() {
+        return content;
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    public boolean isBinary() {
+        return binary;
+    }
+
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
     }
 
-    public void setFileName(String fileName) {
-        this.fileName = fileName;
+    public String getBaseId() {
+        return baseId;
     }
 
-    public String getCode() {
-        return code;
+    public void setBaseId(String baseId) {
+        this.baseId = baseId;
     }
 
-    public void setCode(String code) {
-        this.code = code;
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public List<String> getChunkIds() {
+        return chunkIds;
+    }
+
+    public void setChunkIds(List<String> chunkIds) {
+        this.chunkIds = chunkIds;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Checks whether blob content is stored in chunks.
+     *
+     * @return True if blob is chunked
+     */
+    public boolean isChunked() {
+        return chunkIds != null;
     }
 
     @Override
@@ -81,7 +166,12 @@ public class Blob {
         }
 
         final Blob other = (Blob) obj;
-        return other.getFileName().equals(this.fileName)
-                && other.getCode().equals(this.code);
+
+        return id != null ? id.equals(other.getId()) : other.getId() == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
     }
 }
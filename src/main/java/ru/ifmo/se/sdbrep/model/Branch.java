@@ -24,6 +24,7 @@
 
 package ru.ifmo.se.sdbrep.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.neo4j.ogm.annotation.*;
 
 /**
@@ -34,6 +35,7 @@ import org.neo4j.ogm.annotation.*;
  * @since 1.0
  */
 @NodeEntity
+@CompositeIndex(properties = {"projectId", "name"})
 public class Branch {
 
     public static final String DEFAULT_BRANCH = "master";
@@ -44,6 +46,9 @@ public class Branch {
 
     private String name;
 
+    @JsonIgnore
+    private String projectId;
+
     @Relationship(type = "HEAD")
     private Commit lastCommit;
 
@@ -67,6 +72,14 @@ public class Branch {
         this.name = name;
     }
 
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
     public Commit getLastCommit() {
         return lastCommit;
     }
@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * This class is used as asynchronous commit job entity.<br>
+ * Job goes through commit stages, commit id is set when
+ * job is done, failure reason and message are set when
+ * job has failed. Jobs are stored in the database, so any
+ * instance can report them, and are removed a while after
+ * they are finished.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@Document(collection = "commit_jobs")
+public class CommitJob {
+
+    /**
+     * This enum contains stages of commit job.
+     */
+    public enum Status {
+        QUEUED,
+        BUILDING_TREE,
+        STORING_BLOBS,
+        STORING_TREES,
+        UPDATING_BRANCH,
+        DONE,
+        FAILED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED;
+        }
+    }
+
+    /**
+     * This enum contains reasons of commit job failure.
+     */
+    public enum Failure {
+        NOT_FOUND,
+        NOTHING_TO_COMMIT,
+        CONFLICT,
+        ERROR
+    }
+
+    @Id
+    private volatile String id;
+
+    private volatile String username;
+    private volatile Status status = Status.QUEUED;
+    private volatile String projectName;
+    private volatile String branchName;
+    private volatile Long commitId;
+    private volatile Failure failure;
+    private volatile String failureMessage;
+    private volatile Date createdAt = new Date();
+    private volatile Date finishedAt;
+
+    public CommitJob() {
+
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+        this.projectName = projectName;
+    }
+
+    public String getBranchName() {
+        return branchName;
+    }
+
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+
+    public Long getCommitId() {
+        return commitId;
+    }
+
+    public void setCommitId(Long commitId) {
+        this.commitId = commitId;
+    }
+
+    public Failure getFailure() {
+        return failure;
+    }
+
+    public void setFailure(Failure failure) {
+        this.failure = failure;
+    }
+
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    public void setFailureMessage(String failureMessage) {
+        this.failureMessage = failureMessage;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Date finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -25,7 +25,14 @@
 package ru.ifmo.se.sdbrep.model;
 
 /**
- * This class is used as input file entity.
+ * This class is used as input file entity.<br>
+ * Content of binary files must be encoded with Base64.<br>
+ * Instead of content, id of already stored blob may be
+ * given, such ids can be checked before the commit.<br>
+ * Patch is a unified diff against previous version of the
+ * file, found by previous path if it is set or by path.<br>
+ * File with previous path and without content is moved
+ * (or copied, if copy is set) keeping its blob.
  *
  * @author seniorkot
  * @version 1.0
@@ -34,8 +41,12 @@ package ru.ifmo.se.sdbrep.model;
 public class InputFile {
 
     private String content;
+    private boolean base64;
+    private String blobId;
+    private String patch;
     private String path;
     private String previousPath;
+    private boolean copy;
 
     public InputFile() {
 
@@ -49,6 +60,30 @@ public class InputFile {
         this.content = content;
     }
 
+    public boolean isBase64() {
+        return base64;
+    }
+
+    public void setBase64(boolean base64) {
+        this.base64 = base64;
+    }
+
+    public String getBlobId() {
+        return blobId;
+    }
+
+    public void setBlobId(String blobId) {
+        this.blobId = blobId;
+    }
+
+    public String getPatch() {
+        return patch;
+    }
+
+    public void setPatch(String patch) {
+        this.patch = patch;
+    }
+
     public String getPath() {
         return path;
     }
@@ -64,4 +99,12 @@ public class InputFile {
     public void setPreviousPath(String previousPath) {
         this.previousPath = previousPath;
     }
+
+    public boolean isCopy() {
+        return copy;
+    }
+
+    public void setCopy(boolean copy) {
+        this.copy = copy;
+    }
 }
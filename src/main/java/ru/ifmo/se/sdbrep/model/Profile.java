@@ -64,7 +64,7 @@ public class Profile implements UserDetails {
     private List<GrantedAuthority> authorities;
 
     @JsonIgnore
-    @DBRef
+    @DBRef(lazy = true)
     private List<Project> projects = new ArrayList<>();
 
     public Profile() {
@@ -77,6 +77,23 @@ public class Profile implements UserDetails {
         this.authorities = AuthorityUtils.createAuthorityList(authorities);
     }
 
+    /**
+     * Creates copy of the profile with its own
+     * lists of authorities and projects.
+     *
+     * @param profile Profile to copy
+     */
+    public Profile(Profile profile) {
+        this.id = profile.id;
+        this.username = profile.username;
+        this.password = profile.password;
+        this.firstName = profile.firstName;
+        this.lastName = profile.lastName;
+        this.bio = profile.bio;
+        this.authorities = profile.authorities == null ? null : new ArrayList<>(profile.authorities);
+        this.projects = profile.projects == null ? null : new ArrayList<>(profile.projects);
+    }
+
     public String getId() {
         return id;
     }
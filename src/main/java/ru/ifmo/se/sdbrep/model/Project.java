@@ -26,6 +26,7 @@ package ru.ifmo.se.sdbrep.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -33,7 +34,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * This class is used as project entity.
+ * This class is used as project entity.<br>
+ * Projects are unique by owner profile id and name.<br>
+ * Ids of collaborators are stored along with their
+ * references, so membership is checked and queried
+ * without resolving collaborator profiles.
  *
  * @author seniorkot
  * @version 1.0
@@ -42,15 +47,31 @@ import java.util.List;
 @Document(collection = "projects")
 public class Project {
 
+    /**
+     * This enum contains roles of profiles in project.
+     */
+    public enum Role {
+        OWNER,
+        COLLABORATOR,
+        NONE
+    }
+
     @Id
     private String id;
 
+    @JsonIgnore
+    private String owner;
+
     private String name;
     private String info;
 
-    @DBRef
+    @DBRef(lazy = true)
     private List<Profile> collaborators = new ArrayList<>();
 
+    @JsonIgnore
+    @Indexed
+    private List<String> collaboratorIds = new ArrayList<>();
+
     @JsonIgnore
     private List<Long> branches = new ArrayList<>();
 
@@ -66,6 +87,14 @@ public class Project {
         this.id = id;
     }
 
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
     public String getName() {
         return name;
     }
@@ -90,6 +119,14 @@ public class Project {
         this.collaborators = collaborators;
     }
 
+    public List<String> getCollaboratorIds() {
+        return collaboratorIds;
+    }
+
+    public void setCollaboratorIds(List<String> collaboratorIds) {
+        this.collaboratorIds = collaboratorIds;
+    }
+
     public List<Long> getBranches() {
         return branches;
     }
@@ -25,14 +25,18 @@
 package ru.ifmo.se.sdbrep.model;
 
 import org.springframework.data.annotation.Id;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * This class is used as trees entity.
+ * This class is used as trees entity.<br>
+ * Tree contains inline {@link TreeEntry} entities that
+ * reference subtrees and blobs by their ids, so reading
+ * a tree costs a single document read.<br>
+ * Tree id is a hash of its entries, so equal trees have
+ * equal ids and are shared between commits and branches.
  *
  * @author seniorkot
  * @version 1.0
@@ -41,16 +45,12 @@ import java.util.List;
 @Document(collection = "trees")
 public class Tree {
 
+    public static final String ROOT_DIR_NAME = "/";
+
     @Id
     private String id;
 
-    private String dirName;
-
-    @DBRef
-    private List<Tree> trees = new ArrayList<>();
-
-    @DBRef
-    private List<Blob> blobs = new ArrayList<>();
+    private List<TreeEntry> entries = new ArrayList<>();
 
     public Tree() {
 
@@ -64,28 +64,12 @@ public class Tree {
         this.id = id;
     }
 
-    public String getDirName() {
-        return dirName;
-    }
-
-    public void setDirName(String dirName) {
-        this.dirName = dirName;
-    }
-
-    public List<Tree> getTrees() {
-        return trees;
+    public List<TreeEntry> getEntries() {
+        return entries;
     }
 
-    public void setTrees(List<Tree> trees) {
-        this.trees = trees;
-    }
-
-    public List<Blob> getBlobs() {
-        return blobs;
-    }
-
-    public void setBlobs(List<Blob> blobs) {
-        this.blobs = blobs;
+    public void setEntries(List<TreeEntry> entries) {
+        this.entries = entries;
     }
 
     @Override
@@ -99,8 +83,11 @@ public class Tree {
 
         final Tree other = (Tree) obj;
 
-        return other.getDirName().equals(this.dirName)
-                && other.getTrees().equals(this.trees)
-                && other.getBlobs().equals(this.blobs);
+        return id != null ? id.equals(other.getId()) : other.getId() == null;
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
     }
 }
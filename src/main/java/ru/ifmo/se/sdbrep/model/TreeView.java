@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.model;
+
+import java.util.List;
+
+/**
+ * This class is used as tree view entity.<br>
+ * Unlike {@link Tree} it contains resolved subtrees
+ * and blobs and is returned to clients.<br>
+ * Subtrees and blobs are null if tree has not been
+ * resolved (e.g. it is deeper than requested).
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class TreeView {
+
+    private String id;
+    private String dirName;
+    private List<TreeView> trees;
+    private List<BlobView> blobs;
+
+    public TreeView() {
+
+    }
+
+    public TreeView(String id, String dirName) {
+        this.id = id;
+        this.dirName = dirName;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getDirName() {
+        return dirName;
+    }
+
+    public void setDirName(String dirName) {
+        this.dirName = dirName;
+    }
+
+    public List<TreeView> getTrees() {
+        return trees;
+    }
+
+    public void setTrees(List<TreeView> trees) {
+        this.trees = trees;
+    }
+
+    public List<BlobView> getBlobs() {
+        return blobs;
+    }
+
+    public void setBlobs(List<BlobView> blobs) {
+        this.blobs = blobs;
+    }
+}
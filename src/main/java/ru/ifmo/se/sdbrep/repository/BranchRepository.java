@@ -24,7 +24,9 @@
 
 package ru.ifmo.se.sdbrep.repository;
 
+import org.springframework.data.neo4j.annotation.Query;
 import org.springframework.data.neo4j.repository.Neo4jRepository;
+import org.springframework.data.repository.query.Param;
 import ru.ifmo.se.sdbrep.model.Branch;
 
 import java.util.List;
@@ -39,4 +41,41 @@ import java.util.List;
  */
 public interface BranchRepository extends Neo4jRepository<Branch, Long> {
 
+    Branch findByProjectIdAndName(String projectId, String name);
+
+    /**
+     * Finds branch created before branches were indexed
+     * by project among the project's branches.
+     *
+     * @param branchIds Project's branch ids
+     * @param name Branch name
+     * @return Branch with its head commit
+     */
+    @Query("MATCH (b:Branch) WHERE id(b) IN {branchIds} AND b.name = {name} AND b.projectId IS NULL " +
+            "OPTIONAL MATCH (b)-[h:HEAD]->(c:Commit) " +
+            "RETURN b, h, c")
+    Branch findUnindexed(@Param("branchIds") List<Long> branchIds,
+                         @Param("name") String name);
+
+    /**
+     * Moves branch head to the commit only if it still
+     * points to the expected commit.<br>
+     * Branch node is locked before its head is checked,
+     * so concurrent updates are serialized.
+     *
+     * @param branchId Branch id
+     * @param expectedCommitId Expected head commit id or null if branch has no commits
+     * @param commitId New head commit id
+     * @return 1 if head has been moved, 0 otherwise
+     */
+    @Query("MATCH (b:Branch) WHERE id(b) = {branchId} " +
+            "SET b.lock = true REMOVE b.lock " +
+            "WITH b OPTIONAL MATCH (b)-[h:HEAD]->(old:Commit) " +
+            "WITH b, h, old WHERE (old IS NULL AND {expectedCommitId} IS NULL) OR id(old) = {expectedCommitId} " +
+            "MATCH (c:Commit) WHERE id(c) = {commitId} " +
+            "DELETE h CREATE (b)-[:HEAD]->(c) " +
+            "RETURN count(b)")
+    long compareAndSetHead(@Param("branchId") Long branchId,
+                           @Param("expectedCommitId") Long expectedCommitId,
+                           @Param("commitId") Long commitId);
 }
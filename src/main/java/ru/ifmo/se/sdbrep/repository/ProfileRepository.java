@@ -27,6 +27,7 @@ package ru.ifmo.se.sdbrep.repository;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.security.core.userdetails.UserDetails;
 import ru.ifmo.se.sdbrep.model.Profile;
+import ru.ifmo.se.sdbrep.model.ProfileSummary;
 
 import java.util.Optional;
 
@@ -43,4 +44,6 @@ public interface ProfileRepository extends MongoRepository<Profile, String> {
     Optional<UserDetails> findByUsername(String username);
 
     Optional<Profile> findByUsernameAndPassword(String username, String password);
+
+    Optional<ProfileSummary> findSummaryByUsername(String username);
 }
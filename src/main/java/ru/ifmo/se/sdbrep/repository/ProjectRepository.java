@@ -26,6 +26,7 @@ package ru.ifmo.se.sdbrep.repository;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 import ru.ifmo.se.sdbrep.model.Project;
+import ru.ifmo.se.sdbrep.model.ProjectSummary;
 
 import java.util.List;
 
@@ -39,5 +40,9 @@ import java.util.List;
  */
 public interface ProjectRepository extends MongoRepository<Project, String> {
 
-    List<Project> findAllByCollaboratorsContains(String collaborator);
+    Project findByOwnerAndName(String owner, String name);
+
+    List<ProjectSummary> findAllByOwner(String owner);
+
+    List<ProjectSummary> findAllByCollaboratorIds(String collaboratorId);
 }
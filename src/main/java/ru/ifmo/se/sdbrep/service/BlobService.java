@@ -0,0 +1,107 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service;
+
+import ru.ifmo.se.sdbrep.model.Blob;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This interface contains methods that service must implement
+ * to store and read {@link Blob} entities in the application.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public interface BlobService {
+
+    /**
+     * Gets and returns blob by ID.
+     *
+     * @param id Blob id
+     * @return {@link Blob} entity
+     */
+    Blob getById(String id);
+
+    /**
+     * Gets and returns all found blobs by IDs.
+     *
+     * @param ids Blob ids
+     * @return List of {@link Blob} entities
+     */
+    List<Blob> getAllById(Collection<String> ids);
+
+    /**
+     * Opens stream of blob content.
+     *
+     * @param blob Blob
+     * @return Blob content stream
+     */
+    InputStream getContent(Blob blob);
+
+    /**
+     * Opens stream of blob content range.
+     *
+     * @param blob Blob
+     * @param offset Range offset
+     * @param length Range length
+     * @return Blob content range stream
+     */
+    InputStream getContent(Blob blob, long offset, long length);
+
+    /**
+     * Creates new blob addressed by hash of its content.<br>
+     * Blob is not stored.
+     *
+     * @param content File content
+     * @return New {@link Blob}
+     */
+    Blob create(byte[] content);
+
+    /**
+     * Creates new blob addressed by hash of its content
+     * reading the content from stream.<br>
+     * Content of large blobs is stored in chunks while
+     * reading, blob itself is not stored.
+     *
+     * @param content File content stream
+     * @return New {@link Blob}
+     */
+    Blob create(InputStream content);
+
+    /**
+     * Stores blobs which are not stored yet.<br>
+     * Blobs may be stored as deltas against their
+     * previous versions.
+     *
+     * @param blobs Blobs to store
+     * @param previousIds Map of blob id to id of previous version of the file
+     */
+    void store(Collection<Blob> blobs, Map<String, String> previousIds);
+}
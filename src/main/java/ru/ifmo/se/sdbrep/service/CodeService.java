@@ -26,7 +26,9 @@ package ru.ifmo.se.sdbrep.service;
 
 import ru.ifmo.se.sdbrep.model.*;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This interface contains methods that service must implement
@@ -54,10 +56,14 @@ public interface CodeService {
      *
      * @param projectName Project name
      * @param branchName Branch name
-     * @return {@link Tree entity}
+     * @param depth Number of tree levels to resolve, negative for all levels
+     * @param contents Whether blobs' code must be loaded
+     * @return {@link TreeView} entity
      */
-    Tree getTree(String projectName, 
-                 String branchName);
+    TreeView getTree(String projectName,
+                     String branchName,
+                     int depth,
+                     boolean contents);
 
     /**
      * Gets and returns root tree from certain
@@ -67,11 +73,119 @@ public interface CodeService {
      * @param profileName Username
      * @param projectName Project name
      * @param branchName Branch name
-     * @return {@link Tree entity}
+     * @param depth Number of tree levels to resolve, negative for all levels
+     * @param contents Whether blobs' code must be loaded
+     * @return {@link TreeView} entity
      */
-    Tree getTree(String profileName, 
-                 String projectName, 
-                 String branchName);
+    TreeView getTree(String profileName,
+                     String projectName,
+                     String branchName,
+                     int depth,
+                     boolean contents);
+
+    /**
+     * Gets and returns file or directory by its path
+     * from current user project's last commit on a
+     * certain branch.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param path File or directory path
+     * @return {@link BlobView} with content or {@link TreeView} with its entries
+     */
+    Object getByPath(String projectName,
+                     String branchName,
+                     String path);
+
+    /**
+     * Gets and returns file or directory by its path
+     * from certain user project's last commit on a
+     * certain branch.
+     *
+     * @param profileName Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param path File or directory path
+     * @return {@link BlobView} with content or {@link TreeView} with its entries
+     */
+    Object getByPath(String profileName,
+                     String projectName,
+                     String branchName,
+                     String path);
+
+    /**
+     * Gets and returns blob by its file path
+     * from current user project's last commit
+     * on a certain branch.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param path File path
+     * @return {@link Blob} entity
+     */
+    Blob getBlobByPath(String projectName,
+                       String branchName,
+                       String path);
+
+    /**
+     * Gets and returns blob by its file path
+     * from certain user project's last commit
+     * on a certain branch.
+     *
+     * @param profileName Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param path File path
+     * @return {@link Blob} entity
+     */
+    Blob getBlobByPath(String profileName,
+                       String projectName,
+                       String branchName,
+                       String path);
+
+    /**
+     * Opens stream of blob content.
+     *
+     * @param blob Blob
+     * @return Blob content stream
+     */
+    InputStream getBlobContent(Blob blob);
+
+    /**
+     * Opens stream of blob content range.
+     *
+     * @param blob Blob
+     * @param offset Range offset
+     * @param length Range length
+     * @return Blob content range stream
+     */
+    InputStream getBlobContent(Blob blob, long offset, long length);
+
+    /**
+     * Finds which of the given blobs have not been committed
+     * to the project yet, so client can commit the others by
+     * reference.
+     *
+     * @param projectName Current user's project name
+     * @param blobIds Blob ids (hashes of file contents)
+     * @return Ids of missing blobs or null if project is not found
+     */
+    List<String> getMissingBlobIds(String projectName,
+                                   List<String> blobIds);
+
+    /**
+     * Finds which of the given blobs have not been committed
+     * to the project yet, so client can commit the others by
+     * reference.
+     *
+     * @param profileName Username
+     * @param projectName Project name
+     * @param blobIds Blob ids (hashes of file contents)
+     * @return Ids of missing blobs or null if project is not found or not available
+     */
+    List<String> getMissingBlobIds(String profileName,
+                                   String projectName,
+                                   List<String> blobIds);
 
     /**
      * Gets and returns blob by ID.
@@ -207,4 +321,76 @@ public interface CodeService {
                   String branchName,
                   List<InputFile> files,
                   String message);
+
+    /**
+     * Creates new commit in current user's
+     * project on certain branch reporting
+     * commit stages to the listener.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param files Modified files
+     * @param message Commit message
+     * @param stageListener Function receiving commit stages
+     * @return Crated {@link Commit}
+     */
+    Commit commit(String projectName,
+                  String branchName,
+                  List<InputFile> files,
+                  String message,
+                  Consumer<CommitJob.Status> stageListener);
+
+    /**
+     * Creates new commit in certain user's
+     * project on certain branch reporting
+     * commit stages to the listener.
+     *
+     * @param profileName Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param files Modified files
+     * @param message Commit message
+     * @param stageListener Function receiving commit stages
+     * @return Crated {@link Commit}
+     */
+    Commit commit(String profileName,
+                  String projectName,
+                  String branchName,
+                  List<InputFile> files,
+                  String message,
+                  Consumer<CommitJob.Status> stageListener);
+
+    /**
+     * Creates new commit in current user's
+     * project on certain branch from files
+     * of tar archive.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param archive Tar archive stream
+     * @param message Commit message
+     * @return Crated {@link Commit} or null if project or branch is not found
+     */
+    Commit commit(String projectName,
+                  String branchName,
+                  InputStream archive,
+                  String message);
+
+    /**
+     * Creates new commit in certain user's
+     * project on certain branch from files
+     * of tar archive.
+     *
+     * @param profileName Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param archive Tar archive stream
+     * @param message Commit message
+     * @return Crated {@link Commit} or null if project or branch is not found
+     */
+    Commit commit(String profileName,
+                  String projectName,
+                  String branchName,
+                  InputStream archive,
+                  String message);
 }
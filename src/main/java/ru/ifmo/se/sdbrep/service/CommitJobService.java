@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service;
+
+import ru.ifmo.se.sdbrep.model.CommitJob;
+import ru.ifmo.se.sdbrep.model.InputFile;
+
+import java.util.List;
+
+/**
+ * This interface contains methods that service must implement
+ * to run commits in background as {@link CommitJob} entities.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public interface CommitJobService {
+
+    /**
+     * Submits new commit in current user's
+     * project on certain branch.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param files Modified files
+     * @param message Commit message
+     * @return Submitted {@link CommitJob} or null if queue is full
+     */
+    CommitJob submit(String projectName,
+                     String branchName,
+                     List<InputFile> files,
+                     String message);
+
+    /**
+     * Submits new commit in certain user's
+     * project on certain branch.
+     *
+     * @param profileName Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @param files Modified files
+     * @param message Commit message
+     * @return Submitted {@link CommitJob} or null if queue is full
+     */
+    CommitJob submit(String profileName,
+                     String projectName,
+                     String branchName,
+                     List<InputFile> files,
+                     String message);
+
+    /**
+     * Gets and returns current user's
+     * commit job by ID.
+     *
+     * @param id Job id
+     * @return {@link CommitJob} entity
+     */
+    CommitJob getById(String id);
+}
@@ -26,6 +26,7 @@ package ru.ifmo.se.sdbrep.service;
 
 import org.springframework.security.core.userdetails.UserDetailsService;
 import ru.ifmo.se.sdbrep.model.Profile;
+import ru.ifmo.se.sdbrep.model.ProfileSummary;
 import ru.ifmo.se.sdbrep.model.Project;
 
 /**
@@ -63,6 +64,15 @@ public interface ProfileService {
      */
     Profile getByUsername(String username);
 
+    /**
+     * Gets and returns public profile info
+     * by username.
+     *
+     * @param username Profile username
+     * @return {@link ProfileSummary} entity
+     */
+    ProfileSummary getSummaryByUsername(String username);
+
     /**
      * Gets and returns profile by username
      * and password.
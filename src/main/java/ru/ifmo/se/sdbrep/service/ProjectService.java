@@ -25,6 +25,7 @@
 package ru.ifmo.se.sdbrep.service;
 
 import ru.ifmo.se.sdbrep.model.Project;
+import ru.ifmo.se.sdbrep.model.ProjectSummary;
 
 import java.util.List;
 
@@ -70,26 +71,35 @@ public interface ProjectService {
     /**
      * Gets and returns all current user's projects.
      *
-     * @return List of {@link Project} entities
+     * @return List of {@link ProjectSummary} entities
      */
-    List<Project> getAllCurrent();
+    List<ProjectSummary> getAllCurrent();
 
     /**
      * Gets and returns all certain user's projects.
      *
      * @param username Username
-     * @return List of {@link Project} entities
+     * @return List of {@link ProjectSummary} entities
      */
-    List<Project> getAllByProfileUsername(String username);
+    List<ProjectSummary> getAllByProfileUsername(String username);
 
     /**
      * Gets and returns all projects by collaborator
      * name (not owner).
      *
      * @param collaborator Collaborator name
-     * @return List of {@link Project} entities
+     * @return List of {@link ProjectSummary} entities
      */
-    List<Project> getAllByCollaborator(String collaborator);
+    List<ProjectSummary> getAllByCollaborator(String collaborator);
+
+    /**
+     * Gets and returns current user's role
+     * in the project.
+     *
+     * @param project Project
+     * @return {@link Project.Role} of current user
+     */
+    Project.Role getCurrentRole(Project project);
 
     /**
      * Creates new project in current user's profile.
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service;
+
+import ru.ifmo.se.sdbrep.model.Commit;
+import ru.ifmo.se.sdbrep.model.UploadSession;
+
+/**
+ * This interface contains methods that service must implement
+ * to work with {@link UploadSession} entities in the application.<br>
+ * Sessions are available only to users who created them.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public interface UploadService {
+
+    /**
+     * Creates upload session for commit to current
+     * user's project.
+     *
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @return Created {@link UploadSession} or null if project is not found
+     */
+    UploadSession create(String projectName,
+                         String branchName);
+
+    /**
+     * Creates upload session for commit to certain
+     * user's project.
+     *
+     * @param profileName Username
+     * @param projectName Project name
+     * @param branchName Branch name
+     * @return Created {@link UploadSession} or null if project is not found or not available
+     */
+    UploadSession create(String profileName,
+                         String projectName,
+                         String branchName);
+
+    /**
+     * Gets and returns upload session by ID.
+     *
+     * @param id Session id
+     * @return {@link UploadSession} entity
+     */
+    UploadSession getById(String id);
+
+    /**
+     * Adds chunk to upload session. Chunk must be the
+     * next one, already received chunks are ignored.
+     *
+     * @param id Session id
+     * @param index Chunk index starting from 0
+     * @param content Chunk content
+     * @return Updated {@link UploadSession} or null if chunk is not accepted
+     */
+    UploadSession putChunk(String id,
+                           int index,
+                           byte[] content);
+
+    /**
+     * Creates commit from uploaded archive and
+     * removes the session.
+     *
+     * @param id Session id
+     * @param message Commit message
+     * @return Created {@link Commit}
+     */
+    Commit commit(String id,
+                  String message);
+
+    /**
+     * Removes upload session with its chunks.
+     *
+     * @param id Session id
+     * @return True if session has been removed
+     */
+    boolean delete(String id);
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is used to check whether content is binary,
+ * i.e. it contains zero bytes in the beginning or is not
+ * valid UTF-8.<br>
+ * Content may be passed in parts, so large files
+ * are checked without being loaded whole.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class BinaryDetector {
+
+    private static final int ZERO_CHECK_LENGTH = 8000;
+
+    private final CharsetDecoder mDecoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    private final CharBuffer mChars = CharBuffer.allocate(8192);
+    private byte[] mPending = new byte[0];
+    private long mChecked;
+    private boolean mBinary;
+
+    /**
+     * Checks whole content.
+     *
+     * @param content File content
+     * @return True if content is binary
+     */
+    static boolean isBinary(byte[] content) {
+        BinaryDetector detector = new BinaryDetector();
+        detector.update(content, 0, content.length);
+        return detector.finish();
+    }
+
+    /**
+     * Checks next part of content.
+     *
+     * @param bytes Bytes array
+     * @param offset Part offset in the array
+     * @param length Part length
+     */
+    void update(byte[] bytes, int offset, int length) {
+        if (mBinary) {
+            return;
+        }
+        for (int i = offset; i < offset + length && mChecked + i - offset < ZERO_CHECK_LENGTH; i++) {
+            if (bytes[i] == 0) {
+                mBinary = true;
+                return;
+            }
+        }
+        mChecked += length;
+
+        ByteBuffer input;
+        if (mPending.length == 0) {
+            input = ByteBuffer.wrap(bytes, offset, length);
+        }
+        else {
+            input = ByteBuffer.allocate(mPending.length + length);
+            input.put(mPending).put(bytes, offset, length).flip();
+        }
+        decode(input, false);
+        mPending = new byte[input.remaining()];
+        input.get(mPending);
+    }
+
+    /**
+     * Finishes the check.
+     *
+     * @return True if content is binary
+     */
+    boolean finish() {
+        if (!mBinary) {
+            decode(ByteBuffer.wrap(mPending), true);
+            mPending = new byte[0];
+        }
+        return mBinary;
+    }
+
+    private void decode(ByteBuffer input, boolean endOfInput) {
+        CoderResult result;
+        do {
+            mChars.clear();
+            result = mDecoder.decode(input, mChars, endOfInput);
+            if (result.isError()) {
+                mBinary = true;
+                return;
+            }
+        } while (result.isOverflow());
+        if (endOfInput) {
+            mChars.clear();
+            mBinary = mDecoder.flush(mChars).isError();
+        }
+    }
+}
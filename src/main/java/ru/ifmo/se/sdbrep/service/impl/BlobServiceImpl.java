@@ -0,0 +1,482 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import ru.ifmo.se.sdbrep.cache.ObjectCache;
+import ru.ifmo.se.sdbrep.model.Blob;
+import ru.ifmo.se.sdbrep.model.BlobChunk;
+import ru.ifmo.se.sdbrep.repository.BlobChunkRepository;
+import ru.ifmo.se.sdbrep.repository.BlobRepository;
+import ru.ifmo.se.sdbrep.service.BlobService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * This class is used as blob app service
+ * that implements {@link BlobService} methods.<br>
+ * Blob content is compressed on write with configured
+ * compression if it is large enough, and decompressed
+ * on read. Compression is recorded in every blob, so
+ * blobs stored with other settings stay readable.<br>
+ * If delta storage is enabled, new version of a file is
+ * stored as a delta against previous one when the delta is
+ * small enough. Delta chains are limited by max depth, after
+ * that the version is stored in full. Versions larger than
+ * chunk size are delta encoded before they are split, so a
+ * small change of a large file is stored as a single delta.<br>
+ * Blobs larger than chunk size are otherwise split into
+ * chunks that are neither compressed nor delta encoded and
+ * are read one at a time. Blobs streamed into chunks on
+ * upload are never delta encoded.<br>
+ * New blobs are encoded and inserted in parallel on blob
+ * executor, inserts are batched by content size.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class BlobServiceImpl implements BlobService {
+
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    @Value("${blobs.compression}")
+    private Blob.Compression PROPERTY_COMPRESSION;
+
+    @Value("${blobs.compression-threshold}")
+    private int PROPERTY_COMPRESSION_THRESHOLD;
+
+    @Value("${blobs.delta.enabled}")
+    private boolean PROPERTY_DELTA_ENABLED;
+
+    @Value("${blobs.delta.max-depth}")
+    private int PROPERTY_DELTA_MAX_DEPTH;
+
+    @Value("${blobs.delta.min-size}")
+    private int PROPERTY_DELTA_MIN_SIZE;
+
+    @Value("${blobs.delta.max-size}")
+    private int PROPERTY_DELTA_MAX_SIZE;
+
+    @Value("${blobs.chunk-size}")
+    private int PROPERTY_CHUNK_SIZE;
+
+    @Value("${blobs.insert-batch-size}")
+    private long PROPERTY_INSERT_BATCH_SIZE;
+
+    @Autowired
+    private MongoTemplate mMongoTemplate;
+
+    @Autowired
+    @Qualifier("blobExecutor")
+    private ExecutorService mBlobExecutor;
+
+    @Autowired
+    private ObjectCache<Blob> mBlobCache;
+
+    @Autowired
+    private BlobRepository mBlobRepository;
+
+    @Autowired
+    private BlobChunkRepository mBlobChunkRepository;
+
+    @Override
+    public Blob getById(String id) {
+        Blob blob = mBlobCache.get(id);
+        if (blob == null) {
+            blob = mBlobRepository.findById(id).map(this::decode).orElse(null);
+            if (blob != null) {
+                mBlobCache.put(id, blob);
+            }
+        }
+        return blob;
+    }
+
+    @Override
+    public List<Blob> getAllById(Collection<String> ids) {
+        return Documents.findAll(ids, mBlobCache, this::load, Blob::getId);
+    }
+
+    @Override
+    public InputStream getContent(Blob blob) {
+        return getContent(blob, 0, blob.getSize());
+    }
+
+    @Override
+    public InputStream getContent(Blob blob, long offset, long length) {
+        if (blob.isChunked()) {
+            return new ChunkInputStream(blob.getChunkIds(), blob.getChunkSize(), offset, length, this::loadChunk);
+        }
+        return new ByteArrayInputStream(blob.getContent(), (int) offset, (int) length);
+    }
+
+    @Override
+    public Blob create(byte[] content) {
+        Blob blob = new Blob();
+        blob.setContent(content);
+        blob.setSize(content.length);
+        blob.setBinary(BinaryDetector.isBinary(content));
+        blob.setId(Hashing.sha256(content));
+        return blob;
+    }
+
+    @Override
+    public Blob create(InputStream content) {
+        try {
+            byte[] chunk = readChunk(content);
+            if (chunk.length < PROPERTY_CHUNK_SIZE) {
+                return create(chunk);
+            }
+            byte[] nextChunk = readChunk(content);
+            if (nextChunk.length == 0) {
+                return create(chunk);
+            }
+
+            MessageDigest digest = Hashing.newDigest();
+            BinaryDetector binaryDetector = new BinaryDetector();
+            List<String> chunkIds = new ArrayList<>();
+            long size = 0;
+            while (chunk.length != 0) {
+                digest.update(chunk);
+                binaryDetector.update(chunk, 0, chunk.length);
+                chunkIds.add(storeChunk(chunk));
+                size += chunk.length;
+                chunk = nextChunk;
+                nextChunk = readChunk(content);
+            }
+            return createChunked(Hashing.toHex(digest.digest()), binaryDetector.finish(), size, chunkIds);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void store(Collection<Blob> blobs, Map<String, String> previousIds) {
+        Map<String, Blob> newBlobs = new LinkedHashMap<>();
+        for (Blob blob : blobs) {
+            newBlobs.put(blob.getId(), blob);
+        }
+        newBlobs.keySet().removeAll(Documents.findExistingIds(mMongoTemplate, newBlobs.keySet(), Blob.class));
+        List<Blob> storedBlobs = Futures.map(newBlobs.values(),
+                blob -> prepare(blob, previousIds.get(blob.getId())), mBlobExecutor);
+
+        // Insert batches concurrently
+        List<List<Blob>> batches = new ArrayList<>();
+        List<Blob> batch = new ArrayList<>();
+        long batchSize = 0;
+        for (Blob blob : storedBlobs) {
+            batch.add(blob);
+            batchSize += blob.isChunked() ? 0 : blob.getContent().length;
+            if (batchSize >= PROPERTY_INSERT_BATCH_SIZE) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchSize = 0;
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        Futures.map(batches, blobBatch -> {
+            Documents.insertAll(mMongoTemplate, blobBatch, Blob.class);
+            return blobBatch.size();
+        }, mBlobExecutor);
+    }
+
+    /**
+     * Creates copy of the new blob in the form it is stored:
+     * chunked, delta encoded and compressed if needed.
+     *
+     * @param blob New blob
+     * @param previousId Id of previous version of the file, may be null
+     * @return Blob to store
+     */
+    private Blob prepare(Blob blob, String previousId) {
+        if (blob.isChunked()) {
+            return blob;
+        }
+        Blob storedBlob = encode(blob, previousId);
+        if (storedBlob.getContent().length > PROPERTY_CHUNK_SIZE) {
+            return split(blob);
+        }
+        return compress(storedBlob);
+    }
+
+    private List<Blob> load(List<String> ids) {
+        List<Blob> blobs = new ArrayList<>(ids.size());
+        for (Blob blob : mBlobRepository.findAllById(ids)) {
+            blobs.add(decode(blob));
+        }
+        return blobs;
+    }
+
+    private byte[] loadChunk(String id) {
+        return mBlobChunkRepository.findById(id)
+                .map(BlobChunk::getContent)
+                .orElseThrow(() -> new IllegalStateException("Blob chunk " + id + " is missing"));
+    }
+
+    /**
+     * Reads next chunk from the stream.
+     *
+     * @param content Content stream
+     * @return Chunk content, shorter than chunk size at the end of stream
+     * @throws IOException If stream could not be read
+     */
+    private byte[] readChunk(InputStream content) throws IOException {
+        byte[] buffer = new byte[Math.min(READ_BUFFER_SIZE, PROPERTY_CHUNK_SIZE)];
+        int length = 0;
+        int read;
+        while ((read = content.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length == buffer.length) {
+                if (length == PROPERTY_CHUNK_SIZE) {
+                    return buffer;
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(length * 2, PROPERTY_CHUNK_SIZE));
+            }
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Stores chunk if it is not stored yet.
+     *
+     * @param content Chunk content
+     * @return Chunk id
+     */
+    private String storeChunk(byte[] content) {
+        String id = Hashing.sha256(content);
+        List<String> ids = Collections.singletonList(id);
+        if (Documents.findExistingIds(mMongoTemplate, ids, BlobChunk.class).isEmpty()) {
+            Documents.insertAll(mMongoTemplate, Collections.singletonList(new BlobChunk(id, content)),
+                    BlobChunk.class);
+        }
+        return id;
+    }
+
+    /**
+     * Stores content of the blob in chunks.
+     *
+     * @param blob Blob with content
+     * @return Chunked blob to store
+     */
+    private Blob split(Blob blob) {
+        byte[] content = blob.getContent();
+        List<String> chunkIds = new ArrayList<>();
+        for (int offset = 0; offset < content.length; offset += PROPERTY_CHUNK_SIZE) {
+            chunkIds.add(storeChunk(Arrays.copyOfRange(content, offset,
+                    Math.min(content.length, offset + PROPERTY_CHUNK_SIZE))));
+        }
+        return createChunked(blob.getId(), blob.isBinary(), content.length, chunkIds);
+    }
+
+    /**
+     * Reads whole content of the blob, joining
+     * chunks of a chunked blob.
+     *
+     * @param blob Decoded blob
+     * @return Content
+     */
+    private byte[] readContent(Blob blob) {
+        if (!blob.isChunked()) {
+            return blob.getContent();
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) blob.getSize());
+        for (String chunkId : blob.getChunkIds()) {
+            byte[] chunk = loadChunk(chunkId);
+            outputStream.write(chunk, 0, chunk.length);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private Blob createChunked(String id, boolean binary, long size, List<String> chunkIds) {
+        Blob blob = new Blob();
+        blob.setId(id);
+        blob.setBinary(binary);
+        blob.setSize(size);
+        blob.setChunkIds(chunkIds);
+        blob.setChunkSize(PROPERTY_CHUNK_SIZE);
+        return blob;
+    }
+
+    /**
+     * Creates copy of the blob for storing with content
+     * replaced by delta against previous version, if it
+     * is worth it.
+     *
+     * @param blob Blob with full content
+     * @param previousId Id of previous version of the file, may be null
+     * @return Blob to store
+     */
+    private Blob encode(Blob blob, String previousId) {
+        if (!PROPERTY_DELTA_ENABLED || previousId == null
+                || blob.getContent().length < PROPERTY_DELTA_MIN_SIZE
+                || blob.getContent().length > PROPERTY_DELTA_MAX_SIZE) {
+            return blob;
+        }
+        Blob base = getById(previousId);
+        if (base == null || base.getSize() > PROPERTY_DELTA_MAX_SIZE
+                || base.getDepth() >= PROPERTY_DELTA_MAX_DEPTH) {
+            return blob;
+        }
+        byte[] delta = Delta.create(readContent(base), blob.getContent());
+        if (delta.length > blob.getContent().length / 2) {
+            return blob;
+        }
+        Blob storedBlob = new Blob();
+        storedBlob.setId(blob.getId());
+        storedBlob.setBinary(blob.isBinary());
+        storedBlob.setSize(blob.getSize());
+        storedBlob.setBaseId(base.getId());
+        storedBlob.setDepth(base.getDepth() + 1);
+        storedBlob.setContent(delta);
+        return storedBlob;
+    }
+
+    /**
+     * Restores full content of the loaded blob.
+     *
+     * @param blob Loaded blob
+     * @return Same blob with full uncompressed content, chunked blobs are returned as is
+     */
+    private Blob decode(Blob blob) {
+        if (blob.isChunked()) {
+            return blob;
+        }
+        decompress(blob);
+        if (blob.getBaseId() != null) {
+            Blob base = getById(blob.getBaseId());
+            if (base == null) {
+                throw new IllegalStateException("Base blob " + blob.getBaseId() + " is missing");
+            }
+            blob.setContent(Delta.apply(readContent(base), blob.getContent()));
+        }
+        blob.setSize(blob.getContent().length);
+        return blob;
+    }
+
+    /**
+     * Creates copy of the blob for storing with content
+     * compressed, if it is worth it.
+     *
+     * @param blob Blob with uncompressed content
+     * @return Blob to store
+     */
+    private Blob compress(Blob blob) {
+        if (PROPERTY_COMPRESSION == Blob.Compression.NONE
+                || blob.getContent().length < PROPERTY_COMPRESSION_THRESHOLD) {
+            return blob;
+        }
+        byte[] content = deflate(blob.getContent());
+        if (content.length >= blob.getContent().length) {
+            return blob;
+        }
+        Blob storedBlob = new Blob();
+        storedBlob.setId(blob.getId());
+        storedBlob.setBinary(blob.isBinary());
+        storedBlob.setSize(blob.getSize());
+        storedBlob.setBaseId(blob.getBaseId());
+        storedBlob.setDepth(blob.getDepth());
+        storedBlob.setCompression(PROPERTY_COMPRESSION);
+        storedBlob.setContent(content);
+        return storedBlob;
+    }
+
+    /**
+     * Decompresses content of the loaded blob.
+     *
+     * @param blob Loaded blob
+     * @return Same blob with uncompressed content
+     */
+    private Blob decompress(Blob blob) {
+        if (blob.getCompression() == Blob.Compression.DEFLATE) {
+            blob.setContent(inflate(blob.getContent(), (int) blob.getSize()));
+        }
+        blob.setCompression(Blob.Compression.NONE);
+        return blob;
+    }
+
+    private static byte[] deflate(byte[] content) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length / 2);
+        // Stream does not end deflater it has not created, so native memory is freed here
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputStream, deflater)) {
+            deflaterStream.write(content);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finally {
+            deflater.end();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] content, int sizeHint) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(content);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(sizeHint);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("Unexpected end of compressed data");
+                }
+                outputStream.write(buffer, 0, inflated);
+            }
+            return outputStream.toByteArray();
+        }
+        catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted blob content", e);
+        }
+        finally {
+            inflater.end();
+        }
+    }
+}
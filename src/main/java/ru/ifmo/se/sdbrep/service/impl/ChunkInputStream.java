@@ -0,0 +1,113 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * This class is used to read range of a large blob
+ * stored in chunks.<br>
+ * Chunks are loaded one at a time when reading
+ * reaches them.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class ChunkInputStream extends InputStream {
+
+    private final List<String> mChunkIds;
+    private final Function<String, byte[]> mLoader;
+    private int mChunkIndex;
+    private byte[] mChunk;
+    private int mPosition;
+    private long mRemaining;
+
+    /**
+     * Creates stream of the blob range.
+     *
+     * @param chunkIds Ids of blob chunks
+     * @param chunkSize Size of every chunk except the last one
+     * @param offset Range offset
+     * @param length Range length
+     * @param loader Function loading chunk content by id
+     */
+    ChunkInputStream(List<String> chunkIds, int chunkSize, long offset, long length,
+                     Function<String, byte[]> loader) {
+        mChunkIds = chunkIds;
+        mLoader = loader;
+        mChunkIndex = (int) (offset / chunkSize);
+        mPosition = (int) (offset % chunkSize);
+        mRemaining = length;
+    }
+
+    @Override
+    public int read() {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (mRemaining <= 0 || !nextChunk()) {
+            return -1;
+        }
+        int read = (int) Math.min(Math.min(len, mChunk.length - mPosition), mRemaining);
+        System.arraycopy(mChunk, mPosition, b, off, read);
+        mPosition += read;
+        mRemaining -= read;
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return mChunk == null ? 0 : (int) Math.min(mChunk.length - mPosition, mRemaining);
+    }
+
+    /**
+     * Loads next chunk if current one is read.
+     *
+     * @return False if there are no more chunks
+     */
+    private boolean nextChunk() {
+        if (mChunk != null && mPosition >= mChunk.length) {
+            mChunk = null;
+            mChunkIndex++;
+            mPosition = 0;
+        }
+        if (mChunk == null) {
+            if (mChunkIndex >= mChunkIds.size()) {
+                return false;
+            }
+            mChunk = mLoader.apply(mChunkIds.get(mChunkIndex));
+        }
+        return true;
+    }
+}
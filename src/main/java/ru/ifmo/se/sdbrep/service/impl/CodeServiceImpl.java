@@ -24,17 +24,48 @@
 
 package ru.ifmo.se.sdbrep.service.impl;
 
+import com.mongodb.DBRef;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
+import ru.ifmo.se.sdbrep.cache.ObjectCache;
+import ru.ifmo.se.sdbrep.exception.BranchConflictException;
+import ru.ifmo.se.sdbrep.exception.MalformedArchiveException;
+import ru.ifmo.se.sdbrep.exception.NothingToCommitException;
 import ru.ifmo.se.sdbrep.model.*;
 import ru.ifmo.se.sdbrep.repository.*;
+import ru.ifmo.se.sdbrep.service.BlobService;
 import ru.ifmo.se.sdbrep.service.CodeService;
 import ru.ifmo.se.sdbrep.service.LogService;
 import ru.ifmo.se.sdbrep.service.ProfileService;
 import ru.ifmo.se.sdbrep.service.ProjectService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * This class is used as commit app service
@@ -47,11 +78,31 @@ import java.util.List;
 @Service
 public class CodeServiceImpl implements CodeService {
 
+    private static final String TREES_MIGRATION = "inline-tree-entries";
+    private static final int MIGRATION_BATCH_COUNT = 500;
+    private static final long MIGRATION_BATCH_SIZE = 16 * 1024 * 1024;
+
+    @Value("${commits.retries}")
+    private int PROPERTY_COMMIT_RETRIES;
+
+    @Value("${commits.archive.buffer-size}")
+    private long PROPERTY_ARCHIVE_BUFFER_SIZE;
+
+    @Autowired
+    private MongoTemplate mMongoTemplate;
+
+    @Autowired
+    @Qualifier("blobExecutor")
+    private ExecutorService mBlobExecutor;
+
+    @Autowired
+    private ObjectCache<Tree> mTreeCache;
+
     @Autowired
     private TreeRepository mTreeRepository;
 
     @Autowired
-    private BlobRepository mBlobRepository;
+    private BlobService mBlobService;
 
     @Autowired
     private CommitRepository mCommitRepository;
@@ -73,36 +124,89 @@ public class CodeServiceImpl implements CodeService {
 
     @Override
     public Tree getTree(String id) {
-        return mTreeRepository.findById(id).orElse(null);
+        Tree tree = mTreeCache.get(id);
+        if (tree == null) {
+            tree = mTreeRepository.findById(id).orElse(null);
+            if (tree != null) {
+                mTreeCache.put(id, tree);
+            }
+        }
+        return tree;
     }
 
     @Override
-    public Tree getTree(String projectName, String branchName) {
+    public TreeView getTree(String projectName, String branchName, int depth, boolean contents) {
         Branch branch = getBranch(projectName, branchName);
         if (branch != null) {
             Commit lastCommit = branch.getLastCommit();
             if (lastCommit != null) {
-                return getTree(lastCommit.getCodeRoot());
+                return createTreeView(getTree(lastCommit.getCodeRoot()), Tree.ROOT_DIR_NAME, depth, contents);
             }
         }
         return null;
     }
 
     @Override
-    public Tree getTree(String profileName, String projectName, String branchName) {
+    public TreeView getTree(String profileName, String projectName, String branchName,
+                            int depth, boolean contents) {
         Branch branch = getBranch(profileName, projectName, branchName);
         if (branch != null) {
             Commit lastCommit = branch.getLastCommit();
             if (lastCommit != null) {
-                return getTree(lastCommit.getCodeRoot());
+                return createTreeView(getTree(lastCommit.getCodeRoot()), Tree.ROOT_DIR_NAME, depth, contents);
             }
         }
         return null;
     }
 
+    @Override
+    public Object getByPath(String projectName, String branchName, String path) {
+        return findByPath(getBranch(projectName, branchName), path);
+    }
+
+    @Override
+    public Object getByPath(String profileName, String projectName, String branchName, String path) {
+        return findByPath(getBranch(profileName, projectName, branchName), path);
+    }
+
+    @Override
+    public Blob getBlobByPath(String projectName, String branchName, String path) {
+        return findBlobByPath(getBranch(projectName, branchName), path);
+    }
+
+    @Override
+    public Blob getBlobByPath(String profileName, String projectName, String branchName, String path) {
+        return findBlobByPath(getBranch(profileName, projectName, branchName), path);
+    }
+
+    @Override
+    public InputStream getBlobContent(Blob blob) {
+        return mBlobService.getContent(blob);
+    }
+
+    @Override
+    public InputStream getBlobContent(Blob blob, long offset, long length) {
+        return mBlobService.getContent(blob, offset, length);
+    }
+
+    @Override
+    public List<String> getMissingBlobIds(String projectName, List<String> blobIds) {
+        Project project = mProjectService.getCurrentByName(projectName);
+        return project == null ? null : findUnreachableIds(project.getId(), blobIds);
+    }
+
+    @Override
+    public List<String> getMissingBlobIds(String profileName, String projectName, List<String> blobIds) {
+        Project project = mProjectService.getByProfileUsernameAndName(profileName, projectName);
+        if (project == null || mProjectService.getCurrentRole(project) != Project.Role.COLLABORATOR) {
+            return null;
+        }
+        return findUnreachableIds(project.getId(), blobIds);
+    }
+
     @Override
     public Blob getBlob(String id) {
-        return mBlobRepository.findById(id).orElse(null);
+        return mBlobService.getById(id);
     }
 
     @Override
@@ -153,7 +257,7 @@ public class CodeServiceImpl implements CodeService {
     @Override
     public Branch createBranch(String profileName, String projectName, String parentBranchName, String branchName) {
         Project project = mProjectService.getByProfileUsernameAndName(profileName, projectName);
-        if (!project.getCollaborators().contains(mProfileService.getCurrent())) {
+        if (project == null || mProjectService.getCurrentRole(project) != Project.Role.COLLABORATOR) {
             return null;
         }
         Branch branch = createBranch(project, parentBranchName, branchName);
@@ -166,30 +270,65 @@ public class CodeServiceImpl implements CodeService {
 
     @Override
     public Commit commit(String projectName, String branchName, List<InputFile> files, String message) {
+        return commit(projectName, branchName, files, message, null);
+    }
+
+    @Override
+    public Commit commit(String profileName, String projectName, String branchName, List<InputFile> files, String message) {
+        return commit(profileName, projectName, branchName, files, message, null);
+    }
+
+    @Override
+    public Commit commit(String projectName, String branchName, List<InputFile> files, String message,
+                         Consumer<CommitJob.Status> stageListener) {
         Project project = mProjectService.getCurrentByName(projectName);
-        Branch branch = findBranch(project, branchName);
-        if (branch == null) {
-            branch = createBranch(project, null, branchName);
-        }
-        Commit commit = branch == null ? null : createCommit(branch, files, message);
-        if (commit != null) {
-            mLogService.createLog("Has commited with message \"" + message + "\"",
-                    mProfileService.getCurrent().getId(), project.getId());
+        return commit(project, branchName, message, branch -> createCommit(branch, files, message, stageListener));
+    }
+
+    @Override
+    public Commit commit(String profileName, String projectName, String branchName, List<InputFile> files,
+                         String message, Consumer<CommitJob.Status> stageListener) {
+        Project project = mProjectService.getByProfileUsernameAndName(profileName, projectName);
+        if (project == null || mProjectService.getCurrentRole(project) != Project.Role.COLLABORATOR) {
+            return null;
         }
-        return commit;
+        return commit(project, branchName, message, branch -> createCommit(branch, files, message, stageListener));
     }
 
     @Override
-    public Commit commit(String profileName, String projectName, String branchName, List<InputFile> files, String message) {
+    public Commit commit(String projectName, String branchName, InputStream archive, String message) {
+        Project project = mProjectService.getCurrentByName(projectName);
+        return commit(project, branchName, message, branch -> createCommit(branch, archive, message));
+    }
+
+    @Override
+    public Commit commit(String profileName, String projectName, String branchName, InputStream archive, String message) {
         Project project = mProjectService.getByProfileUsernameAndName(profileName, projectName);
-        if (!project.getCollaborators().contains(mProfileService.getCurrent())) {
+        if (project == null || mProjectService.getCurrentRole(project) != Project.Role.COLLABORATOR) {
+            return null;
+        }
+        return commit(project, branchName, message, branch -> createCommit(branch, archive, message));
+    }
+
+    /**
+     * Creates commit on project's branch, branch
+     * is created if it does not exist.
+     *
+     * @param project Project
+     * @param branchName Branch name
+     * @param message Commit message
+     * @param committer Function creating commit on the branch
+     * @return Created {@link Commit} or null if commit has not been created
+     */
+    private Commit commit(Project project, String branchName, String message, Function<Branch, Commit> committer) {
+        if (project == null) {
             return null;
         }
         Branch branch = findBranch(project, branchName);
         if (branch == null) {
             branch = createBranch(project, null, branchName);
         }
-        Commit commit = branch == null ? null : createCommit(branch, files, message);
+        Commit commit = branch == null ? null : committer.apply(branch);
         if (commit != null) {
             mLogService.createLog("Has commited with message \"" + message + "\"",
                     mProfileService.getCurrent().getId(), project.getId());
@@ -197,94 +336,481 @@ public class CodeServiceImpl implements CodeService {
         return commit;
     }
 
-    private Commit createCommit(Branch branch, List<InputFile> files, String message) {
+    private Commit createCommit(Branch branch, List<InputFile> files, String message,
+                                Consumer<CommitJob.Status> stageListener) {
         if (files.size() != 0) {
-            final Tree newTree = new Tree();
+            // Files may be given by ids of blobs committed to the project only
+            List<String> blobIds = new ArrayList<>();
+            for (InputFile file : files) {
+                if (!isValidPath(file.getPath()) || !isValidPath(file.getPreviousPath())) {
+                    return null;
+                }
+                if (file.getBlobId() != null) {
+                    blobIds.add(file.getBlobId());
+                }
+            }
+            if (!blobIds.isEmpty() && !findUnreachableIds(branch.getProjectId(), blobIds).isEmpty()) {
+                return null;
+            }
+
+            Tree oldTree = getCodeRoot(branch);
+            CommitBuilder commitBuilder = new CommitBuilder(oldTree, this::getTree, mBlobService, stageListener);
+
+            // Find blobs of copied files, then remove moved files from their previous paths
+            Map<InputFile, String> sourceIds = new HashMap<>();
+            for (InputFile file : files) {
+                String[] previousPath = splitFilePath(file.getPreviousPath());
+                if (previousPath != null && file.isCopy()) {
+                    sourceIds.put(file, commitBuilder.get(previousPath));
+                }
+            }
+            for (InputFile file : files) {
+                String[] previousPath = splitFilePath(file.getPreviousPath());
+                if (previousPath != null && !file.isCopy() && !file.getPreviousPath().equals(file.getPath())) {
+                    sourceIds.put(file, commitBuilder.remove(previousPath));
+                }
+            }
+
+            // Hash file contents in parallel
+            Map<InputFile, CompletableFuture<Blob>> createdBlobs = new HashMap<>();
+            for (InputFile file : files) {
+                if (file.getBlobId() == null && file.getPatch() == null && file.getContent() != null) {
+                    createdBlobs.put(file, CompletableFuture.supplyAsync(() -> createBlob(file), mBlobExecutor));
+                }
+            }
+
+            // Put each input file to the tree, waiting only for its blob
+            for (InputFile file : files) {
+                String[] path = splitFilePath(file.getPath());
+                if (path == null) {
+                    continue;
+                }
+                String sourceId = sourceIds.get(file);
+                if (file.getBlobId() != null) {
+                    commitBuilder.put(path, file.getBlobId());
+                }
+                else if (file.getPatch() != null) {
+                    Blob blob = createPatchedBlob(sourceId != null ? sourceId : commitBuilder.get(path),
+                            file.getPatch());
+                    if (blob == null) {
+                        return null;
+                    }
+                    commitBuilder.put(path, blob, sourceId);
+                }
+                else if (file.getContent() == null && sourceId != null) {
+                    // Moved or copied file keeps its blob
+                    commitBuilder.put(path, sourceId);
+                }
+                else {
+                    CompletableFuture<Blob> blob = createdBlobs.get(file);
+                    commitBuilder.put(path, blob != null ? Futures.join(blob) : createBlob(file), sourceId);
+                }
+            }
+            return finishCommit(branch, oldTree, commitBuilder, message);
+        }
+        return null;
+    }
+
+    /**
+     * Creates commit from files of tar archive. Files are
+     * read one by one and their blobs are stored in batches,
+     * so only a bounded part of the archive is kept in memory.
+     *
+     * @param branch Branch
+     * @param archive Tar archive stream
+     * @param message Commit message
+     * @return Created {@link Commit}
+     * @throws MalformedArchiveException If archive could not be read, has no files
+     * or has files outside of the project tree
+     */
+    private Commit createCommit(Branch branch, InputStream archive, String message) {
+        Tree oldTree = getCodeRoot(branch);
+        CommitBuilder commitBuilder = new CommitBuilder(oldTree, this::getTree, mBlobService, null);
+        boolean empty = true;
+        try {
+            TarInputStream tarStream = new TarInputStream(archive);
+            String fileName;
+            while ((fileName = tarStream.nextEntry()) != null) {
+                if (fileName.startsWith("/") || !isValidPath(fileName)) {
+                    throw new MalformedArchiveException("Archive entry \"" + fileName + "\" is outside of the project");
+                }
+                String[] path = splitFilePath(fileName);
+                if (path != null) {
+                    empty = false;
+                    commitBuilder.put(path, mBlobService.create(tarStream), null);
+                    if (commitBuilder.getBlobsSize() >= PROPERTY_ARCHIVE_BUFFER_SIZE) {
+                        commitBuilder.storeBlobs();
+                    }
+                }
+            }
+        }
+        catch (IOException | UncheckedIOException e) {
+            throw new MalformedArchiveException("Archive could not be read", e);
+        }
+        if (empty) {
+            throw new MalformedArchiveException("Archive has no files");
+        }
+        return finishCommit(branch, oldTree, commitBuilder, message);
+    }
+
+    /**
+     * Finds which of the blobs may not be referenced by id
+     * in the project's commits.<br>
+     * Blobs are stored once for all projects, so a blob may
+     * be referenced only if it has been committed to the
+     * project. Otherwise knowing content hash would be enough
+     * to read content of other projects.
+     *
+     * @param projectId Project id
+     * @param blobIds Blob ids
+     * @return Ids of blobs which must be uploaded
+     */
+    private List<String> findUnreachableIds(String projectId, Collection<String> blobIds) {
+        Map<String, String> recordIds = new LinkedHashMap<>();
+        for (String blobId : blobIds) {
+            recordIds.put(ProjectBlob.createId(projectId, blobId), blobId);
+        }
+        recordIds.keySet().removeAll(Documents.findExistingIds(mMongoTemplate, recordIds.keySet(), ProjectBlob.class));
+        return new ArrayList<>(recordIds.values());
+    }
+
+    /**
+     * Records blobs as committed to the project.
+     *
+     * @param projectId Project id
+     * @param blobIds Committed blob ids
+     */
+    private void storeProjectBlobs(String projectId, Collection<String> blobIds) {
+        List<ProjectBlob> records = new ArrayList<>();
+        for (String blobId : blobIds) {
+            records.add(new ProjectBlob(projectId, blobId));
+        }
+        Documents.insertAll(mMongoTemplate, records, ProjectBlob.class);
+    }
+
+    private Tree getCodeRoot(Branch branch) {
+        return branch.getLastCommit() == null ? null : getTree(branch.getLastCommit().getCodeRoot());
+    }
+
+    /**
+     * Builds and stores changed trees, stores remaining
+     * blobs and moves branch to the new commit.<br>
+     * Branch head is moved only if it has not been moved
+     * since the commit was started. Otherwise changes are
+     * replayed on top of the new head and commit is retried.
+     *
+     * @param branch Branch
+     * @param oldTree Root tree of the last commit, may be null
+     * @param commitBuilder Commit changes
+     * @param message Commit message
+     * @return Created {@link Commit}
+     * @throws NothingToCommitException If files have not changed the branch
+     * @throws BranchConflictException If the same files have been changed concurrently
+     */
+    private Commit finishCommit(Branch branch, Tree oldTree, CommitBuilder commitBuilder, String message) {
+        for (int attempt = 0; ; attempt++) {
+            List<Tree> trees = new ArrayList<>();
+            Tree codeRoot = commitBuilder.build(trees);
+            if (oldTree != null && codeRoot.getId().equals(oldTree.getId())) {
+                throw new NothingToCommitException(branch.getName());
+            }
+            commitBuilder.setStatus(CommitJob.Status.STORING_BLOBS);
+            commitBuilder.storeBlobs();
+            commitBuilder.setStatus(CommitJob.Status.STORING_TREES);
+            storeTrees(trees);
+
+            commitBuilder.setStatus(CommitJob.Status.UPDATING_BRANCH);
+            Commit lastCommit = branch.getLastCommit();
             Commit commit = new Commit();
             commit.setMessage(message);
             commit.setAuthor(mProfileService.getCurrent().getUsername());
-            commit.setPreviousCommit(branch.getLastCommit());
-            newTree.setDirName("/");
+            commit.setPreviousCommit(lastCommit);
+            commit.setCodeRoot(codeRoot.getId());
+            commit = mCommitRepository.save(commit, 1);
+            if (mBranchRepository.compareAndSetHead(branch.getId(),
+                    lastCommit == null ? null : lastCommit.getId(), commit.getId()) == 1) {
+                branch.setLastCommit(commit);
+                storeProjectBlobs(branch.getProjectId(), commitBuilder.getBlobIds());
+                return commit;
+            }
 
-            // For each input file create and add trees with blobs
-            for (InputFile file : files) {
-                if (file.getPath() != null && !file.getPath().endsWith("/")) {
-                    Tree tmp = newTree;
-                    Tree tmp2;
-                    String[] dirs = file.getPath().split("/");
-                    for (int i = 1; i < dirs.length - 1; i++) {
-                        tmp2 = findTree(tmp, dirs[i]);
-                        if (tmp2 == null) {
-                            tmp2 = new Tree();
-                            tmp2.setDirName(dirs[i]);
-                            tmp.getTrees().add(mTreeRepository.insert(tmp2));
+            // Branch has been moved by another commit
+            mCommitRepository.delete(commit);
+            String branchName = branch.getName();
+            branch = mBranchRepository.findById(branch.getId()).orElse(null);
+            if (branch == null || attempt >= PROPERTY_COMMIT_RETRIES) {
+                throw new BranchConflictException(branchName);
+            }
+            oldTree = getCodeRoot(branch);
+            commitBuilder.setStatus(CommitJob.Status.BUILDING_TREE);
+            if (!commitBuilder.rebase(oldTree)) {
+                throw new BranchConflictException(branch.getName());
+            }
+        }
+    }
+
+    /**
+     * Resolves tree with its subtrees and blobs.<br>
+     * Trees and blobs of each tree level are loaded
+     * with a single query, levels deeper than requested
+     * are not loaded at all.
+     *
+     * @param root Root tree
+     * @param dirName Root tree name
+     * @param depth Number of tree levels to resolve, negative for all levels
+     * @param contents Whether blobs' code must be loaded
+     * @return {@link TreeView} entity or null if root is null
+     */
+    private TreeView createTreeView(Tree root, String dirName, int depth, boolean contents) {
+        if (root == null) {
+            return null;
+        }
+        TreeView rootView = new TreeView(root.getId(), dirName);
+        Map<String, List<TreeView>> treeViews = new HashMap<>();
+        treeViews.put(root.getId(), Collections.singletonList(rootView));
+        Iterable<Tree> trees = Collections.singletonList(root);
+        for (int level = 0; depth < 0 || level < depth; level++) {
+            Map<String, List<TreeView>> subTreeViews = new HashMap<>();
+            Map<String, List<BlobView>> blobViews = new HashMap<>();
+            for (Tree tree : trees) {
+                for (TreeView treeView : treeViews.get(tree.getId())) {
+                    treeView.setTrees(new ArrayList<>());
+                    treeView.setBlobs(new ArrayList<>());
+                    for (TreeEntry entry : tree.getEntries()) {
+                        if (entry.getType() == TreeEntry.Type.TREE) {
+                            TreeView subTreeView = new TreeView(entry.getObjectId(), entry.getName());
+                            treeView.getTrees().add(subTreeView);
+                            subTreeViews.computeIfAbsent(entry.getObjectId(), id -> new ArrayList<>())
+                                    .add(subTreeView);
+                        }
+                        else {
+                            BlobView blobView = new BlobView(entry.getObjectId(), entry.getName());
+                            treeView.getBlobs().add(blobView);
+                            blobViews.computeIfAbsent(entry.getObjectId(), id -> new ArrayList<>())
+                                    .add(blobView);
                         }
-                        tmp = tmp2;
                     }
-                    Blob blob = new Blob();
-                    blob.setFileName(dirs[dirs.length - 1]);
-                    blob.setCode(file.getContent());
-                    tmp.getBlobs().add(mBlobRepository.insert(blob));
-                    mTreeRepository.save(tmp);
                 }
             }
-
-            if (branch.getLastCommit() != null) {
-                final Tree oldTree = getTree(branch.getLastCommit().getCodeRoot());
-
-                // Add other blobs to the structure
-                addFiles(oldTree, newTree);
-
-                // Remove unnecessary files & dirs
-                List<Tree> addedTrees = new ArrayList<>();
-                for (InputFile file : files) {
-                    if (file.getPreviousPath() != null && !file.getPreviousPath().equals(file.getPath())
-                            && !file.getPreviousPath().endsWith("/")) {
-                        String[] dirs = file.getPreviousPath().split("/");
-                        Tree tmp = newTree;
-                        for (int i = 1; i < dirs.length - 1; i++) {
-                            Tree tmp2 = findTree(tmp, dirs[i]);
-                            if (tmp2 != null) {
-                                if (addedTrees.remove(tmp2)) {
-                                    mTreeRepository.delete(tmp2);
-                                }
-                                Tree tmp3 = new Tree();
-                                tmp3.setDirName(tmp2.getDirName());
-                                tmp3.setBlobs(tmp2.getBlobs());
-                                tmp3.setTrees(tmp2.getTrees());
-                                tmp3 = mTreeRepository.insert(tmp3);
-                                addedTrees.add(tmp3);
-                                tmp.getTrees().remove(tmp2);
-                                tmp.getTrees().add(tmp3);
-                                tmp = tmp3;
-                            }
-                            else  {
-                                break;
-                            }
-                        }
-                        tmp.getBlobs().remove(findBlob(tmp, dirs[dirs.length - 1]));
-                        mTreeRepository.save(tmp);
+            if (contents && !blobViews.isEmpty()) {
+                for (Blob blob : mBlobService.getAllById(blobViews.keySet())) {
+                    for (BlobView blobView : blobViews.get(blob.getId())) {
+                        setBlobViewContent(blobView, blob);
                     }
                 }
             }
+            treeViews = subTreeViews;
+            if (treeViews.isEmpty()) {
+                break;
+            }
+            if (depth < 0 || level + 1 < depth) {
+                trees = Documents.findAll(treeViews.keySet(), mTreeCache, mTreeRepository::findAllById, Tree::getId);
+            }
+        }
+        return rootView;
+    }
 
-            commit.setCodeRoot(mTreeRepository.save(newTree).getId());
-            branch.setLastCommit(mCommitRepository.save(commit));
-            mBranchRepository.save(branch);
-            return commit;
+    private BlobView createBlobView(Blob blob, String fileName) {
+        BlobView blobView = new BlobView(blob.getId(), fileName);
+        setBlobViewContent(blobView, blob);
+        return blobView;
+    }
+
+    /**
+     * Sets blob view content, text blobs are returned as is
+     * and binary ones are encoded with Base64. Content of
+     * chunked blobs is not set, it must be read as stream.
+     *
+     * @param blobView Blob view
+     * @param blob Blob
+     */
+    private void setBlobViewContent(BlobView blobView, Blob blob) {
+        blobView.setBinary(blob.isBinary());
+        if (blob.isChunked()) {
+            return;
+        }
+        blobView.setCode(blob.isBinary()
+                ? Base64.getEncoder().encodeToString(blob.getContent())
+                : new String(blob.getContent(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Finds file or directory by path in branch's last
+     * commit. Only trees on the path are loaded.
+     *
+     * @param branch Branch
+     * @param path File or directory path, directory path may end with "/"
+     * @return {@link BlobView} with content, {@link TreeView} with its entries or null if not found
+     */
+    private Object findByPath(Branch branch, String path) {
+        TreeEntry entry = findEntryByPath(branch, path);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.getType() == TreeEntry.Type.BLOB) {
+            Blob blob = getBlob(entry.getObjectId());
+            return blob == null ? null : createBlobView(blob, entry.getName());
+        }
+        return createTreeView(getTree(entry.getObjectId()), entry.getName(), 1, false);
+    }
+
+    /**
+     * Finds tree entry by path in branch's last
+     * commit. Only trees on the path are loaded.
+     *
+     * @param branch Branch
+     * @param path File or directory path, directory path may end with "/"
+     * @return {@link TreeEntry} or null if not found
+     */
+    private TreeEntry findEntryByPath(Branch branch, String path) {
+        if (branch == null || branch.getLastCommit() == null) {
+            return null;
+        }
+        TreeEntry entry = new TreeEntry(Tree.ROOT_DIR_NAME, TreeEntry.Type.TREE,
+                branch.getLastCommit().getCodeRoot());
+        String[] parts = TreeBuilder.split(path);
+        if (parts == null) {
+            return null;
+        }
+        for (int i = 0; i < parts.length; i++) {
+            Tree tree = entry.getType() == TreeEntry.Type.TREE ? getTree(entry.getObjectId()) : null;
+            if (tree == null) {
+                return null;
+            }
+            entry = i == parts.length - 1 && !path.endsWith("/")
+                    ? findEntry(tree, parts[i], TreeEntry.Type.BLOB) : null;
+            if (entry == null) {
+                entry = findEntry(tree, parts[i], TreeEntry.Type.TREE);
+            }
+            if (entry == null) {
+                return null;
+            }
+        }
+        return entry;
+    }
+
+    private Blob findBlobByPath(Branch branch, String path) {
+        TreeEntry entry = findEntryByPath(branch, path);
+        if (entry == null || entry.getType() != TreeEntry.Type.BLOB) {
+            return null;
+        }
+        return getBlob(entry.getObjectId());
+    }
+
+    private TreeEntry findEntry(Tree tree, String name, TreeEntry.Type type) {
+        for (TreeEntry entry : tree.getEntries()) {
+            if (entry.getType() == type && entry.getName().equals(name)) {
+                return entry;
+            }
         }
         return null;
     }
 
+    /**
+     * Checks that path has no parent directory references.
+     *
+     * @param path Path, may be null
+     * @return True if path is null or has no ".." parts
+     */
+    private static boolean isValidPath(String path) {
+        return path == null || TreeBuilder.split(path) != null;
+    }
+
+    /**
+     * Splits file path into parts.
+     *
+     * @param path File path
+     * @return Path parts or null if path doesn't point to a file
+     */
+    private String[] splitFilePath(String path) {
+        if (path == null || path.endsWith("/")) {
+            return null;
+        }
+        String[] parts = TreeBuilder.split(path);
+        return parts == null || parts.length == 0 ? null : parts;
+    }
+
+    /**
+     * Creates blob addressed by hash of its content, so
+     * identical files are kept in the database only once.
+     *
+     * @param file Input file
+     * @return New {@link Blob}
+     */
+    private Blob createBlob(InputFile file) {
+        byte[] content;
+        if (file.getContent() == null) {
+            content = new byte[0];
+        }
+        else if (file.isBase64()) {
+            content = Base64.getMimeDecoder().decode(file.getContent());
+        }
+        else {
+            content = file.getContent().getBytes(StandardCharsets.UTF_8);
+        }
+        return mBlobService.create(content);
+    }
+
+    /**
+     * Creates blob by applying patch to content
+     * of the previous version of the file.
+     *
+     * @param baseId Id of the previous version blob, may be null
+     * @param patch Unified diff
+     * @return New {@link Blob} or null if there is no text base or patch does not apply
+     */
+    private Blob createPatchedBlob(String baseId, String patch) {
+        Blob base = baseId == null ? null : mBlobService.getById(baseId);
+        if (base == null || base.isBinary() || base.isChunked()) {
+            return null;
+        }
+        try {
+            String content = Patch.apply(new String(base.getContent(), StandardCharsets.UTF_8), patch);
+            return mBlobService.create(content.getBytes(StandardCharsets.UTF_8));
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Inserts trees which are not stored yet
+     * with a single bulk write.
+     *
+     * @param trees Changed trees, children before their parents
+     */
+    private void storeTrees(List<Tree> trees) {
+        Map<String, Tree> newTrees = new LinkedHashMap<>();
+        for (Tree tree : trees) {
+            newTrees.put(tree.getId(), tree);
+        }
+        newTrees.keySet().removeAll(Documents.findExistingIds(mMongoTemplate, newTrees.keySet(), Tree.class));
+        Documents.insertAll(mMongoTemplate, newTrees.values(), Tree.class);
+        for (Tree tree : trees) {
+            mTreeCache.put(tree.getId(), tree);
+        }
+    }
+
+    /**
+     * Finds project's branch by its name.<br>
+     * Branches created before they were indexed by
+     * project are indexed when they are found.
+     *
+     * @param project Project
+     * @param branchName Branch name
+     * @return {@link Branch} with its head commit or null if not found
+     */
     private Branch findBranch(Project project, String branchName) {
         if (project != null) {
-            List<Long> branchIds = project.getBranches();
-            Iterable<Branch> branches = mBranchRepository.findAllById(branchIds);
-            for (Branch branch : branches) {
-                if (branch.getName().equals(branchName)) {
-                    return branch;
+            Branch branch = mBranchRepository.findByProjectIdAndName(project.getId(), branchName);
+            if (branch == null && !project.getBranches().isEmpty()) {
+                branch = mBranchRepository.findUnindexed(project.getBranches(), branchName);
+                if (branch != null) {
+                    branch.setProjectId(project.getId());
+                    mBranchRepository.save(branch, 0);
                 }
             }
+            return branch;
         }
         return null;
     }
@@ -298,6 +824,7 @@ public class CodeServiceImpl implements CodeService {
                 if (parentBranch != null) {
                     newBranch = new Branch();
                     newBranch.setName(branchName);
+                    newBranch.setProjectId(project.getId());
                     newBranch.setLastCommit(parentBranch.getLastCommit());
                     newBranch = mBranchRepository.save(newBranch);
                     project.getBranches().add(newBranch.getId());
@@ -308,6 +835,7 @@ public class CodeServiceImpl implements CodeService {
             else if (branchName.equals(Branch.DEFAULT_BRANCH)) {
                 newBranch = new Branch();
                 newBranch.setName(Branch.DEFAULT_BRANCH);
+                newBranch.setProjectId(project.getId());
                 newBranch = mBranchRepository.save(newBranch);
                 project.getBranches().add(newBranch.getId());
                 mProjectRepository.save(project);
@@ -317,39 +845,130 @@ public class CodeServiceImpl implements CodeService {
         return null;
     }
 
-    private Tree findTree(Tree root, String treeName) {
-        for (Tree tree : root.getTrees()) {
-            if (tree.getDirName().equals(treeName)) {
-                return tree;
+    /**
+     * Converts trees and blobs stored before tree entries
+     * were kept inline.<br>
+     * Trees keep their ids, so commits still point to them.
+     * Subtrees and blobs referenced by DBRef become entries
+     * named by subtree directory names and blob file names,
+     * text code of blobs becomes their content.<br>
+     * Old documents are streamed and updated in bounded bulk
+     * writes, finished migration is marked, so collections
+     * are not scanned again on the next start.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateTrees() {
+        if (mMongoTemplate.findById(TREES_MIGRATION, Migration.class) != null) {
+            return;
+        }
+        String treesCollection = mMongoTemplate.getCollectionName(Tree.class);
+        String blobsCollection = mMongoTemplate.getCollectionName(Blob.class);
+
+        MigrationBatch blobBatch = new MigrationBatch(Blob.class);
+        Query oldBlobs = new Query(Criteria.where("code").exists(true));
+        try (CloseableIterator<Document> blobs = mMongoTemplate.stream(oldBlobs, Document.class, blobsCollection)) {
+            while (blobs.hasNext()) {
+                Document blob = blobs.next();
+                if (!blob.containsKey("code")) {
+                    continue;
+                }
+                String code = blob.getString("code");
+                byte[] content = code == null ? new byte[0] : code.getBytes(StandardCharsets.UTF_8);
+                blobBatch.update(blob.get("_id"), new Update()
+                        .set("content", content)
+                        .set("size", (long) content.length)
+                        .set("binary", false)
+                        .set("compression", Blob.Compression.NONE)
+                        .unset("code"), content.length);
             }
         }
-        return null;
-    }
-
-    private Blob findBlob(Tree root, String blobName) {
-        for (Blob blob : root.getBlobs()) {
-            if (blob.getFileName().equals(blobName)) {
-                return blob;
+        blobBatch.execute();
+
+        MigrationBatch treeBatch = new MigrationBatch(Tree.class);
+        Query oldTrees = new Query(Criteria.where("entries").exists(false));
+        try (CloseableIterator<Document> trees = mMongoTemplate.stream(oldTrees, Document.class, treesCollection)) {
+            while (trees.hasNext()) {
+                Document tree = trees.next();
+                if (tree.containsKey("entries")) {
+                    continue;
+                }
+                List<TreeEntry> entries = new ArrayList<>();
+                for (Document subtree : findReferenced(tree.get("trees"), treesCollection)) {
+                    entries.add(new TreeEntry(subtree.getString("dirName"), TreeEntry.Type.TREE,
+                            subtree.get("_id").toString()));
+                }
+                for (Document blob : findReferenced(tree.get("blobs"), blobsCollection)) {
+                    entries.add(new TreeEntry(blob.getString("fileName"), TreeEntry.Type.BLOB,
+                            blob.get("_id").toString()));
+                }
+                treeBatch.update(tree.get("_id"),
+                        new Update().set("entries", entries).unset("trees").unset("blobs"), 0);
             }
         }
-        return null;
+        treeBatch.execute();
+
+        mMongoTemplate.save(new Migration(TREES_MIGRATION));
     }
 
-    private void addFiles(Tree oldTree, Tree newTree) {
-        for (Blob blob : oldTree.getBlobs()) {
-            if (findBlob(newTree, blob.getFileName()) == null) {
-                newTree.getBlobs().add(blob);
+    /**
+     * This class is used to collect migration updates
+     * into bulk writes limited by number of updates and
+     * by size of written content.
+     */
+    private final class MigrationBatch {
+
+        private final Class<?> mDocumentClass;
+        private BulkOperations mOperations;
+        private int mCount;
+        private long mSize;
+
+        private MigrationBatch(Class<?> documentClass) {
+            mDocumentClass = documentClass;
+        }
+
+        private void update(Object id, Update update, long size) {
+            if (mOperations == null) {
+                mOperations = mMongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, mDocumentClass);
+            }
+            mOperations.updateOne(new Query(Criteria.where("_id").is(id)), update);
+            mCount++;
+            mSize += size;
+            if (mCount >= MIGRATION_BATCH_COUNT || mSize >= MIGRATION_BATCH_SIZE) {
+                execute();
             }
         }
-        for (Tree tree : oldTree.getTrees()) {
-            Tree subTree = findTree(newTree, tree.getDirName());
-            if (subTree == null) {
-                newTree.getTrees().add(tree);
+
+        private void execute() {
+            if (mOperations != null) {
+                mOperations.execute();
+                mOperations = null;
+                mCount = 0;
+                mSize = 0;
             }
-            else {
-                addFiles(tree, subTree);
+        }
+    }
+
+    /**
+     * Loads documents referenced by list of DBRefs.
+     *
+     * @param references List of DBRefs, may be null
+     * @param collection Collection of referenced documents
+     * @return Referenced documents with their names
+     */
+    private List<Document> findReferenced(Object references, String collection) {
+        List<Object> ids = new ArrayList<>();
+        if (references instanceof List) {
+            for (Object reference : (List<?>) references) {
+                if (reference instanceof DBRef) {
+                    ids.add(((DBRef) reference).getId());
+                }
             }
         }
-        mTreeRepository.save(newTree);
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("dirName").include("fileName");
+        return mMongoTemplate.find(query, Document.class, collection);
     }
 }
@@ -0,0 +1,242 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import ru.ifmo.se.sdbrep.model.Blob;
+import ru.ifmo.se.sdbrep.model.CommitJob;
+import ru.ifmo.se.sdbrep.model.Tree;
+import ru.ifmo.se.sdbrep.service.BlobService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This class is used to collect changes of a commit.<br>
+ * It keeps new blobs until they are stored together with
+ * ids of previous versions of their files, so blobs may
+ * be stored in batches while changes are still coming.<br>
+ * Every change remembers blob it replaced, so changes
+ * can be replayed on top of another tree unless the same
+ * files have been changed there.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class CommitBuilder {
+
+    private final Function<String, Tree> mLoader;
+    private final BlobService mBlobService;
+    private final Consumer<CommitJob.Status> mStageListener;
+    private final Map<String, Blob> mBlobs = new LinkedHashMap<>();
+    private final Map<String, String> mPreviousIds = new HashMap<>();
+    private final List<Change> mChanges = new ArrayList<>();
+    private TreeBuilder mTreeBuilder;
+    private long mBlobsSize;
+
+    /**
+     * Creates builder of changes on top of the tree.
+     *
+     * @param original Original root tree or null for the first commit
+     * @param loader Function loading trees by id
+     * @param blobService Service storing blobs
+     * @param stageListener Function receiving commit stages, may be null
+     */
+    CommitBuilder(Tree original, Function<String, Tree> loader, BlobService blobService,
+                  Consumer<CommitJob.Status> stageListener) {
+        mTreeBuilder = new TreeBuilder(original, loader);
+        mLoader = loader;
+        mBlobService = blobService;
+        mStageListener = stageListener;
+        setStatus(CommitJob.Status.BUILDING_TREE);
+    }
+
+    /**
+     * Reports commit stage to the listener, if there is one.
+     *
+     * @param status Commit stage
+     */
+    void setStatus(CommitJob.Status status) {
+        if (mStageListener != null) {
+            mStageListener.accept(status);
+        }
+    }
+
+    /**
+     * Puts new blob to the tree by path.
+     *
+     * @param path Path parts
+     * @param blob New blob, it is stored later
+     * @param movedId Id of the blob this file was moved from, may be null
+     */
+    void put(String[] path, Blob blob, String movedId) {
+        if (!mBlobs.containsKey(blob.getId())) {
+            mBlobs.put(blob.getId(), blob);
+            if (!blob.isChunked()) {
+                mBlobsSize += blob.getSize();
+            }
+        }
+        String previousId = change(path, blob.getId(), true);
+        if (previousId == null) {
+            previousId = movedId;
+        }
+        if (previousId != null && !previousId.equals(blob.getId())) {
+            mPreviousIds.putIfAbsent(blob.getId(), previousId);
+        }
+    }
+
+    /**
+     * Puts already stored blob to the tree by path.
+     *
+     * @param path Path parts
+     * @param blobId Stored blob id
+     */
+    void put(String[] path, String blobId) {
+        change(path, blobId, true);
+    }
+
+    /**
+     * Gets id of blob in the tree by path.
+     *
+     * @param path Path parts
+     * @return Blob id or null if there is no blob
+     */
+    String get(String[] path) {
+        return mTreeBuilder.get(path);
+    }
+
+    /**
+     * Removes blob from the tree by path.
+     *
+     * @param path Path parts
+     * @return Removed blob id or null if there was no blob
+     */
+    String remove(String[] path) {
+        return change(path, null, true);
+    }
+
+    /**
+     * Replays all changes on top of another tree.
+     *
+     * @param original New original root tree
+     * @return False if some files have been changed in the new tree as well
+     */
+    boolean rebase(Tree original) {
+        mTreeBuilder = new TreeBuilder(original, mLoader);
+        for (Change change : mChanges) {
+            String replacedId = change(change.mPath, change.mBlobId, false);
+            if (replacedId == null ? change.mReplacedId != null : !replacedId.equals(change.mReplacedId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns ids of all blobs put to the tree.
+     *
+     * @return Set of blob ids
+     */
+    Set<String> getBlobIds() {
+        Set<String> blobIds = new HashSet<>();
+        for (Change change : mChanges) {
+            if (change.mBlobId != null) {
+                blobIds.add(change.mBlobId);
+            }
+        }
+        return blobIds;
+    }
+
+    /**
+     * Returns total content size of blobs
+     * which are not stored yet.
+     *
+     * @return Size in bytes
+     */
+    long getBlobsSize() {
+        return mBlobsSize;
+    }
+
+    /**
+     * Stores collected blobs and forgets them.
+     */
+    void storeBlobs() {
+        if (!mBlobs.isEmpty()) {
+            mBlobService.store(mBlobs.values(), mPreviousIds);
+            mBlobs.clear();
+            mPreviousIds.clear();
+            mBlobsSize = 0;
+        }
+    }
+
+    /**
+     * Builds changed trees.
+     *
+     * @param created List to add changed trees to, children go before their parents
+     * @return Built root {@link Tree}
+     */
+    Tree build(List<Tree> created) {
+        return mTreeBuilder.build(created);
+    }
+
+    /**
+     * Puts blob to the tree or removes it.
+     *
+     * @param path Path parts
+     * @param blobId Blob id or null to remove blob
+     * @param record Whether change must be recorded
+     * @return Replaced blob id
+     */
+    private String change(String[] path, String blobId, boolean record) {
+        String replacedId = blobId == null ? mTreeBuilder.remove(path) : mTreeBuilder.put(path, blobId);
+        if (record) {
+            mChanges.add(new Change(path, blobId, replacedId));
+        }
+        return replacedId;
+    }
+
+    /**
+     * This class is used as a single change of the tree.
+     */
+    private static final class Change {
+
+        private final String[] mPath;
+        private final String mBlobId;
+        private final String mReplacedId;
+
+        private Change(String[] path, String blobId, String replacedId) {
+            mPath = path;
+            mBlobId = blobId;
+            mReplacedId = replacedId;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import ru.ifmo.se.sdbrep.exception.BranchConflictException;
+import ru.ifmo.se.sdbrep.exception.NothingToCommitException;
+import ru.ifmo.se.sdbrep.model.Commit;
+import ru.ifmo.se.sdbrep.model.CommitJob;
+import ru.ifmo.se.sdbrep.model.InputFile;
+import ru.ifmo.se.sdbrep.repository.CommitJobRepository;
+import ru.ifmo.se.sdbrep.service.CodeService;
+import ru.ifmo.se.sdbrep.service.CommitJobService;
+import ru.ifmo.se.sdbrep.service.ProfileService;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * This class is used as commit job app service
+ * that implements {@link CommitJobService} methods.<br>
+ * Jobs run on bounded commit executor of the instance
+ * they were submitted to. Jobs and their stages are
+ * stored in the database, so jobs can be polled through
+ * any instance, and expire a while after they are finished.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class CommitJobServiceImpl implements CommitJobService {
+
+    @Value("${commits.jobs.retention}")
+    private long PROPERTY_JOBS_RETENTION;
+
+    @Autowired
+    @Qualifier("commitExecutor")
+    private ExecutorService mCommitExecutor;
+
+    @Autowired
+    private MongoTemplate mMongoTemplate;
+
+    @Autowired
+    private CommitJobRepository mCommitJobRepository;
+
+    @Autowired
+    private CodeService mCodeService;
+
+    @Autowired
+    private ProfileService mProfileService;
+
+    @Override
+    public CommitJob submit(String projectName, String branchName, List<InputFile> files, String message) {
+        return submit(createJob(projectName, branchName),
+                stageListener -> mCodeService.commit(projectName, branchName, files, message, stageListener));
+    }
+
+    @Override
+    public CommitJob submit(String profileName, String projectName, String branchName,
+                            List<InputFile> files, String message) {
+        return submit(createJob(projectName, branchName),
+                stageListener -> mCodeService.commit(profileName, projectName, branchName, files, message,
+                        stageListener));
+    }
+
+    @Override
+    public CommitJob getById(String id) {
+        CommitJob job = mCommitJobRepository.findById(id).orElse(null);
+        if (job == null || !job.getUsername().equals(mProfileService.getCurrent().getUsername())) {
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * Creates index removing finished jobs
+     * after retention time.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexJobs() {
+        mMongoTemplate.indexOps(CommitJob.class).ensureIndex(new Index()
+                .on("finishedAt", Sort.Direction.ASC)
+                .expire(PROPERTY_JOBS_RETENTION, TimeUnit.MILLISECONDS));
+    }
+
+    private CommitJob createJob(String projectName, String branchName) {
+        CommitJob job = new CommitJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setUsername(mProfileService.getCurrent().getUsername());
+        job.setProjectName(projectName);
+        job.setBranchName(branchName);
+        return job;
+    }
+
+    /**
+     * Stores job and submits it to commit executor.
+     *
+     * @param job Job
+     * @param committer Function creating commit and reporting stages to the given listener
+     * @return Submitted job or null if executor queue is full
+     */
+    private CommitJob submit(CommitJob job, Function<Consumer<CommitJob.Status>, Commit> committer) {
+        mCommitJobRepository.insert(job);
+        try {
+            mCommitExecutor.execute(() -> {
+                Commit commit = null;
+                try {
+                    commit = committer.apply(status -> updateStatus(job, status));
+                    if (commit == null) {
+                        fail(job, CommitJob.Failure.NOT_FOUND, "Project or branch not found or invalid file path");
+                    }
+                }
+                catch (NothingToCommitException e) {
+                    fail(job, CommitJob.Failure.NOTHING_TO_COMMIT, e.getMessage());
+                }
+                catch (BranchConflictException e) {
+                    fail(job, CommitJob.Failure.CONFLICT, e.getMessage());
+                }
+                catch (RuntimeException | Error e) {
+                    fail(job, CommitJob.Failure.ERROR, e.toString());
+                    throw e;
+                }
+                finally {
+                    job.setCommitId(commit == null ? null : commit.getId());
+                    job.setFinishedAt(new Date());
+                    job.setStatus(commit == null ? CommitJob.Status.FAILED : CommitJob.Status.DONE);
+                    mCommitJobRepository.save(job);
+                }
+            });
+            return job;
+        }
+        catch (RejectedExecutionException e) {
+            mCommitJobRepository.deleteById(job.getId());
+            return null;
+        }
+    }
+
+    private void updateStatus(CommitJob job, CommitJob.Status status) {
+        job.setStatus(status);
+        mMongoTemplate.updateFirst(new Query(Criteria.where("_id").is(job.getId())),
+                new Update().set("status", status), CommitJob.class);
+    }
+
+    private static void fail(CommitJob job, CommitJob.Failure failure, String message) {
+        job.setFailure(failure);
+        job.setFailureMessage(message);
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is used to create and apply binary deltas
+ * between two versions of a file.<br>
+ * Delta starts with target length followed by copy
+ * (offset and length in base) and insert (length and
+ * literal bytes) instructions, all numbers are varints.
+ * Matches are found by rolling hash of fixed-size blocks
+ * of the base.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class Delta {
+
+    private static final int BLOCK_SIZE = 16;
+    private static final int PRIME = 0x01000193;
+    private static final int PRIME_POWER;
+
+    private static final byte COPY = 0;
+    private static final byte INSERT = 1;
+
+    static {
+        int power = 1;
+        for (int i = 0; i < BLOCK_SIZE - 1; i++) {
+            power *= PRIME;
+        }
+        PRIME_POWER = power;
+    }
+
+    private Delta() {
+
+    }
+
+    /**
+     * Creates delta that turns base into target.
+     *
+     * @param base Base content
+     * @param target Target content
+     * @return Delta
+     */
+    static byte[] create(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarInt(out, target.length);
+
+        Map<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK_SIZE <= base.length; i += BLOCK_SIZE) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+
+        int insertStart = 0;
+        int position = 0;
+        int hash = target.length >= BLOCK_SIZE ? hash(target, 0) : 0;
+        while (position + BLOCK_SIZE <= target.length) {
+            Integer offset = blocks.get(hash);
+            if (offset != null && matches(base, offset, target, position)) {
+                int start = position;
+                int baseStart = offset;
+                while (start > insertStart && baseStart > 0 && target[start - 1] == base[baseStart - 1]) {
+                    start--;
+                    baseStart--;
+                }
+                int end = position + BLOCK_SIZE;
+                int baseEnd = offset + BLOCK_SIZE;
+                while (end < target.length && baseEnd < base.length && target[end] == base[baseEnd]) {
+                    end++;
+                    baseEnd++;
+                }
+                writeInsert(out, target, insertStart, start);
+                writeCopy(out, baseStart, end - start);
+                position = end;
+                insertStart = end;
+                if (position + BLOCK_SIZE <= target.length) {
+                    hash = hash(target, position);
+                }
+            }
+            else {
+                if (position + BLOCK_SIZE < target.length) {
+                    hash = roll(hash, target[position], target[position + BLOCK_SIZE]);
+                }
+                position++;
+            }
+        }
+        writeInsert(out, target, insertStart, target.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * Applies delta to base.
+     *
+     * @param base Base content
+     * @param delta Delta created against the base
+     * @return Target content
+     */
+    static byte[] apply(byte[] base, byte[] delta) {
+        ByteBuffer in = ByteBuffer.wrap(delta);
+        byte[] target = new byte[readVarInt(in)];
+        int position = 0;
+        while (in.hasRemaining()) {
+            byte instruction = in.get();
+            int length;
+            if (instruction == COPY) {
+                int offset = readVarInt(in);
+                length = readVarInt(in);
+                System.arraycopy(base, offset, target, position, length);
+            }
+            else if (instruction == INSERT) {
+                length = readVarInt(in);
+                in.get(target, position, length);
+            }
+            else {
+                throw new IllegalStateException("Unknown delta instruction " + instruction);
+            }
+            position += length;
+        }
+        if (position != target.length) {
+            throw new IllegalStateException("Delta is incomplete");
+        }
+        return target;
+    }
+
+    private static int hash(byte[] bytes, int offset) {
+        int hash = 0;
+        for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+            hash = hash * PRIME + (bytes[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private static int roll(int hash, byte removed, byte added) {
+        return (hash - (removed & 0xFF) * PRIME_POWER) * PRIME + (added & 0xFF);
+    }
+
+    private static boolean matches(byte[] base, int baseOffset, byte[] target, int targetOffset) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (base[baseOffset + i] != target[targetOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeCopy(ByteArrayOutputStream out, int offset, int length) {
+        out.write(COPY);
+        writeVarInt(out, offset);
+        writeVarInt(out, length);
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] bytes, int from, int to) {
+        if (to > from) {
+            out.write(INSERT);
+            writeVarInt(out, to - from);
+            out.write(bytes, from, to - from);
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
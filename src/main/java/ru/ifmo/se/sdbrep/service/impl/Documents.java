@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import com.mongodb.BulkWriteError;
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import ru.ifmo.se.sdbrep.cache.ObjectCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * This class contains helper methods for reading and
+ * writing immutable content-addressed documents (trees
+ * and blobs) in batches.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class Documents {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private Documents() {
+
+    }
+
+    /**
+     * Finds objects by ids, objects missing in cache
+     * are loaded with a single query and cached.
+     *
+     * @param ids Object ids
+     * @param cache Objects cache
+     * @param loader Function loading objects by ids
+     * @param idGetter Function returning object id
+     * @param <V> Objects type
+     * @return List of found objects
+     */
+    static <V> List<V> findAll(Collection<String> ids, ObjectCache<V> cache,
+                               Function<List<String>, Iterable<V>> loader, Function<V, String> idGetter) {
+        List<V> objects = new ArrayList<>(ids.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : ids) {
+            V object = cache.get(id);
+            if (object != null) {
+                objects.add(object);
+            }
+            else {
+                missingIds.add(id);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            for (V object : loader.apply(missingIds)) {
+                cache.put(idGetter.apply(object), object);
+                objects.add(object);
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Finds which of the given ids are already stored.<br>
+     * Only ids are fetched, documents' content is not loaded.
+     *
+     * @param mongoTemplate Mongo template
+     * @param ids Document ids
+     * @param documentClass Document class
+     * @return Set of existing ids
+     */
+    static Set<String> findExistingIds(MongoTemplate mongoTemplate, Collection<String> ids,
+                                       Class<?> documentClass) {
+        Set<String> existingIds = new HashSet<>();
+        if (!ids.isEmpty()) {
+            Query query = Query.query(Criteria.where("_id").in(ids));
+            query.fields().include("_id");
+            for (Document document : mongoTemplate.find(query, Document.class,
+                    mongoTemplate.getCollectionName(documentClass))) {
+                existingIds.add(document.get("_id").toString());
+            }
+        }
+        return existingIds;
+    }
+
+    /**
+     * Inserts documents with a single unordered bulk write.<br>
+     * Documents are content-addressed, so duplicates stored
+     * concurrently are ignored.
+     *
+     * @param mongoTemplate Mongo template
+     * @param documents Documents to insert
+     * @param documentClass Document class
+     */
+    static void insertAll(MongoTemplate mongoTemplate, Collection<?> documents, Class<?> documentClass) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, documentClass)
+                    .insert(new ArrayList<>(documents))
+                    .execute();
+        }
+        catch (BulkOperationException e) {
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY_ERROR) {
+                    throw e;
+                }
+            }
+        }
+    }
+}
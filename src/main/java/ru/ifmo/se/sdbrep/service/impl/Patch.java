@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class is used to apply unified diff patches
+ * to text files.<br>
+ * Hunks must apply exactly at their positions, every
+ * context and removed line is checked.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class Patch {
+
+    private static final Pattern HUNK_HEADER =
+            Pattern.compile("^@@ -(\\d+)(?:,(\\d+))? \\+(\\d+)(?:,(\\d+))? @@.*$");
+
+    private Patch() {
+
+    }
+
+    /**
+     * Applies patch to the text.
+     *
+     * @param original Original text
+     * @param patch Unified diff of the file
+     * @return Patched text
+     * @throws IllegalArgumentException If patch is malformed or does not apply
+     */
+    static String apply(String original, String patch) {
+        List<String> source = splitLines(original);
+        String[] patchLines = patch.split("\n", -1);
+        StringBuilder result = new StringBuilder(original.length() + patch.length());
+        int position = 0;
+        int i = 0;
+        while (i < patchLines.length) {
+            Matcher header = HUNK_HEADER.matcher(patchLines[i++]);
+            if (!header.matches()) {
+                // File headers and other lines between hunks
+                continue;
+            }
+            int oldCount = header.group(2) == null ? 1 : Integer.parseInt(header.group(2));
+            int newCount = header.group(4) == null ? 1 : Integer.parseInt(header.group(4));
+            int start = Integer.parseInt(header.group(1)) - (oldCount == 0 ? 0 : 1);
+            if (start < position || start > source.size()) {
+                throw new IllegalArgumentException("Hunk is out of file bounds");
+            }
+            while (position < start) {
+                result.append(source.get(position++));
+            }
+
+            int removed = 0;
+            int added = 0;
+            while (removed < oldCount || added < newCount) {
+                if (i >= patchLines.length) {
+                    throw new IllegalArgumentException("Hunk is truncated");
+                }
+                String line = patchLines[i++];
+                boolean noNewline = i < patchLines.length && patchLines[i].startsWith("\\");
+                if (noNewline) {
+                    i++;
+                }
+                char type = line.isEmpty() ? ' ' : line.charAt(0);
+                String text = (line.isEmpty() ? "" : line.substring(1)) + (noNewline ? "" : "\n");
+                if (type == ' ' || type == '-') {
+                    if (position >= source.size() || !source.get(position).equals(text)) {
+                        throw new IllegalArgumentException("Hunk does not match the file");
+                    }
+                    position++;
+                    removed++;
+                }
+                if (type == ' ' || type == '+') {
+                    result.append(text);
+                    added++;
+                }
+                else if (type != '-') {
+                    throw new IllegalArgumentException("Malformed hunk line");
+                }
+            }
+            if (removed != oldCount || added != newCount) {
+                throw new IllegalArgumentException("Hunk line counts do not match");
+            }
+        }
+        while (position < source.size()) {
+            result.append(source.get(position++));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Splits text into lines keeping line terminators.
+     *
+     * @param text Text
+     * @return Lines, last one has no terminator if text does not end with new line
+     */
+    private static List<String> splitLines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = text.indexOf('\n', start)) != -1) {
+            lines.add(text.substring(start, end + 1));
+            start = end + 1;
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+}
@@ -31,8 +31,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import ru.ifmo.se.sdbrep.cache.ObjectCache;
 import ru.ifmo.se.sdbrep.config.SecurityConfig;
 import ru.ifmo.se.sdbrep.model.Profile;
+import ru.ifmo.se.sdbrep.model.ProfileSummary;
 import ru.ifmo.se.sdbrep.model.Project;
 import ru.ifmo.se.sdbrep.repository.ProfileRepository;
 import ru.ifmo.se.sdbrep.service.LogService;
@@ -52,23 +56,61 @@ import java.util.Optional;
 @Service
 public class ProfileServiceImpl implements ProfileService, UserDetailsService {
 
+    private static final String CURRENT_PROFILE_ATTRIBUTE = ProfileServiceImpl.class.getName() + ".current";
+
     @Autowired
     private ProfileRepository mProfileRepository;
 
+    @Autowired
+    private ObjectCache<Profile> mUserCache;
+
     @Autowired
     private LogService mLogService;
 
+    /**
+     * Loads profile by username. Found profiles are
+     * cached for a short time.
+     *
+     * @param username Username
+     * @return {@link Profile} or null if not found
+     * @throws UsernameNotFoundException Never thrown
+     */
     @Override
     public UserDetails loadUserByUsername(@NonNull String username) throws UsernameNotFoundException {
+        Profile cached = mUserCache.get(username);
+        if (cached != null) {
+            return cached;
+        }
         Optional<UserDetails> profile = mProfileRepository.findByUsername(username);
+        if (profile.isPresent() && profile.get() instanceof Profile) {
+            mUserCache.put(username, (Profile) profile.get());
+        }
         return profile.orElse(null);
     }
 
+    /**
+     * Gets and returns current user's profile.<br>
+     * Profile is loaded once per request and kept
+     * in request attributes, outside of requests
+     * it is loaded on every call.
+     *
+     * @return {@link Profile} entity
+     */
     @Override
     public Profile getCurrent() {
         String id = (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        return getById(id);
-
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return getById(id);
+        }
+        Profile profile = (Profile) attributes.getAttribute(CURRENT_PROFILE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (profile == null || !profile.getId().equals(id)) {
+            profile = getById(id);
+            if (profile != null) {
+                attributes.setAttribute(CURRENT_PROFILE_ATTRIBUTE, profile, RequestAttributes.SCOPE_REQUEST);
+            }
+        }
+        return profile;
     }
 
     @Override
@@ -86,6 +128,12 @@ public class ProfileServiceImpl implements ProfileService, UserDetailsService {
         return null;
     }
 
+    @Override
+    public ProfileSummary getSummaryByUsername(@NonNull String username) {
+        Optional<ProfileSummary> profile = mProfileRepository.findSummaryByUsername(username);
+        return profile.orElse(null);
+    }
+
     @Override
     public Profile getByUsernameAndPassword(@NonNull String username, @NonNull String password) {
         Optional<Profile> profile = mProfileRepository.findByUsernameAndPassword(username, password);
@@ -107,6 +155,7 @@ public class ProfileServiceImpl implements ProfileService, UserDetailsService {
     public Profile update(@NonNull Profile profile) {
         Profile currentProfile = getCurrent();
         if (currentProfile != null) {
+            String username = currentProfile.getUsername();
             if (profile.getUsername() != null) {
                 if (loadUserByUsername(profile.getUsername()) == null) {
                     currentProfile.setUsername(profile.getUsername());
@@ -128,7 +177,9 @@ public class ProfileServiceImpl implements ProfileService, UserDetailsService {
                 currentProfile.setBio(profile.getBio());
             }
             mLogService.createLog("Has updated profile info", currentProfile.getId());
-            return mProfileRepository.save(currentProfile);
+            currentProfile = mProfileRepository.save(currentProfile);
+            mUserCache.remove(username);
+            return currentProfile;
         }
         return null;
     }
@@ -137,13 +188,17 @@ public class ProfileServiceImpl implements ProfileService, UserDetailsService {
     public Profile addProject(Project project) {
         Profile currentProfile = getCurrent();
         currentProfile.getProjects().add(project);
-        return mProfileRepository.save(currentProfile);
+        currentProfile = mProfileRepository.save(currentProfile);
+        mUserCache.remove(currentProfile.getUsername());
+        return currentProfile;
     }
 
     @Override
     public Profile removeProject(Project project) {
         Profile currentProfile = getCurrent();
         currentProfile.getProjects().remove(project);
-        return mProfileRepository.save(currentProfile);
+        currentProfile = mProfileRepository.save(currentProfile);
+        mUserCache.remove(currentProfile.getUsername());
+        return currentProfile;
     }
 }
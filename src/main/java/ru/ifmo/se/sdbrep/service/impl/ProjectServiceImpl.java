@@ -25,15 +25,26 @@
 package ru.ifmo.se.sdbrep.service.impl;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 import ru.ifmo.se.sdbrep.model.Profile;
+import ru.ifmo.se.sdbrep.model.ProfileSummary;
 import ru.ifmo.se.sdbrep.model.Project;
+import ru.ifmo.se.sdbrep.model.ProjectSummary;
+import ru.ifmo.se.sdbrep.repository.ProjectBlobRepository;
 import ru.ifmo.se.sdbrep.repository.ProjectRepository;
 import ru.ifmo.se.sdbrep.service.LogService;
 import ru.ifmo.se.sdbrep.service.ProfileService;
 import ru.ifmo.se.sdbrep.service.ProjectService;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -51,6 +62,12 @@ public class ProjectServiceImpl implements ProjectService {
     @Autowired
     private ProjectRepository mProjectRepository;
 
+    @Autowired
+    private ProjectBlobRepository mProjectBlobRepository;
+
+    @Autowired
+    private MongoTemplate mMongoTemplate;
+
     @Autowired
     private ProfileService mProfileService;
 
@@ -66,46 +83,59 @@ public class ProjectServiceImpl implements ProjectService {
     @Override
     public Project getCurrentByName(@NonNull String name) {
         Profile profile = mProfileService.getCurrent();
-        for (Project project : profile.getProjects()) {
-            if (project != null && project.getName().equals(name)) {
-                return project;
-            }
-        }
-        return null;
+        return mProjectRepository.findByOwnerAndName(profile.getId(), name);
     }
 
     @Override
     public Project getByProfileUsernameAndName(@NonNull String username, @NonNull String name) {
         Profile profile = mProfileService.getByUsername(username);
-        for (Project project : profile.getProjects()) {
-            if (project != null && project.getName().equals(name)) {
-                return project;
-            }
+        if (profile != null) {
+            return mProjectRepository.findByOwnerAndName(profile.getId(), name);
         }
         return null;
     }
 
     @Override
-    public List<Project> getAllCurrent() {
+    public List<ProjectSummary> getAllCurrent() {
         Profile profile = mProfileService.getCurrent();
-        return profile.getProjects();
+        return mProjectRepository.findAllByOwner(profile.getId());
     }
 
     @Override
-    public List<Project> getAllByProfileUsername(String username) {
+    public List<ProjectSummary> getAllByProfileUsername(String username) {
         Profile profile = mProfileService.getByUsername(username);
-        return profile.getProjects();
+        if (profile != null) {
+            return mProjectRepository.findAllByOwner(profile.getId());
+        }
+        return new ArrayList<>();
     }
 
     @Override
-    public List<Project> getAllByCollaborator(@NonNull String collaborator) {
-        return mProjectRepository.findAllByCollaboratorsContains(collaborator);
+    public List<ProjectSummary> getAllByCollaborator(@NonNull String collaborator) {
+        ProfileSummary profile = mProfileService.getSummaryByUsername(collaborator);
+        if (profile != null) {
+            return mProjectRepository.findAllByCollaboratorIds(profile.getId());
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public Project.Role getCurrentRole(@NonNull Project project) {
+        String profileId = mProfileService.getCurrent().getId();
+        if (profileId.equals(project.getOwner())) {
+            return Project.Role.OWNER;
+        }
+        if (project.getCollaboratorIds().contains(profileId)) {
+            return Project.Role.COLLABORATOR;
+        }
+        return Project.Role.NONE;
     }
 
     @Override
     public Project create(@NonNull String name) {
         if (getCurrentByName(name) == null) {
             Project project = new Project();
+            project.setOwner(mProfileService.getCurrent().getId());
             project.setName(name);
             project = mProjectRepository.insert(project);
             mProfileService.addProject(project);
@@ -142,6 +172,7 @@ public class ProjectServiceImpl implements ProjectService {
     public void delete(Project project) {
         mProfileService.removeProject(project);
         mProjectRepository.delete(project);
+        mProjectBlobRepository.deleteAllByProjectId(project.getId());
         mLogService.createLog("Has deleted project",
                 mProfileService.getCurrent().getId(), project.getId());
     }
@@ -151,9 +182,10 @@ public class ProjectServiceImpl implements ProjectService {
         Project project = getCurrentByName(projectName);
         Profile collaborator = mProfileService.getByUsername(collaboratorName);
         if (project != null && collaborator != null) {
-            if (!project.getCollaborators().contains(collaborator) &&
+            if (!project.getCollaboratorIds().contains(collaborator.getId()) &&
                     !mProfileService.getCurrent().equals(collaborator)) {
                 project.getCollaborators().add(collaborator);
+                project.getCollaboratorIds().add(collaborator.getId());
                 mLogService.createLog("Has added " + collaboratorName + " as collaborator",
                         mProfileService.getCurrent().getId(), project.getId());
                 return mProjectRepository.save(project);
@@ -167,12 +199,46 @@ public class ProjectServiceImpl implements ProjectService {
     public Project removeCollaborator(@NonNull String projectName, @NonNull String collaboratorName) {
         Project project = getCurrentByName(projectName);
         Profile collaborator = mProfileService.getByUsername(collaboratorName);
-        if (project != null && collaborator != null && project.getCollaborators().contains(collaborator)) {
+        if (project != null && collaborator != null && project.getCollaboratorIds().contains(collaborator.getId())) {
             project.getCollaborators().remove(collaborator);
+            project.getCollaboratorIds().remove(collaborator.getId());
             mLogService.createLog("Has removed " + collaboratorName + " from collaborators",
                     mProfileService.getCurrent().getId(), project.getId());
             return mProjectRepository.save(project);
         }
         return null;
     }
+
+    /**
+     * Sets owners and collaborator ids of projects created
+     * before they were stored and creates unique
+     * (owner, name) index used by project lookups.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexProjects() {
+        Query withoutCollaboratorIds = new Query(Criteria.where("collaboratorIds").exists(false));
+        for (Project project : mMongoTemplate.find(withoutCollaboratorIds, Project.class)) {
+            for (Profile collaborator : project.getCollaborators()) {
+                if (collaborator != null) {
+                    project.getCollaboratorIds().add(collaborator.getId());
+                }
+            }
+            mProjectRepository.save(project);
+        }
+        Query withoutOwner = new Query(Criteria.where("owner").exists(false));
+        if (mMongoTemplate.exists(withoutOwner, Project.class)) {
+            for (Profile profile : mMongoTemplate.findAll(Profile.class)) {
+                for (Project project : profile.getProjects()) {
+                    if (project != null && project.getOwner() == null) {
+                        project.setOwner(profile.getId());
+                        mProjectRepository.save(project);
+                    }
+                }
+            }
+        }
+        mMongoTemplate.indexOps(Project.class).ensureIndex(new Index()
+                .on("owner", Sort.Direction.ASC)
+                .on("name", Sort.Direction.ASC)
+                .unique());
+    }
 }
@@ -0,0 +1,295 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class is used to read regular files from
+ * tar archive stream one by one.<br>
+ * Stream reads content of the current entry. ustar
+ * prefixes, GNU long names and pax paths are supported,
+ * entries other than regular files are skipped.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class TarInputStream extends InputStream {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int MAX_HEADER_ENTRY_SIZE = 65536;
+
+    private static final byte TYPE_FILE = '0';
+    private static final byte TYPE_OLD_FILE = 0;
+    private static final byte TYPE_CONTIGUOUS_FILE = '7';
+    private static final byte TYPE_GNU_LONG_NAME = 'L';
+    private static final byte TYPE_PAX_HEADER = 'x';
+
+    private final InputStream mInputStream;
+    private final byte[] mHeader = new byte[BLOCK_SIZE];
+    private long mRemaining;
+    private long mPadding;
+
+    TarInputStream(InputStream inputStream) {
+        mInputStream = inputStream;
+    }
+
+    /**
+     * Skips rest of the current entry and moves
+     * to the next regular file.
+     *
+     * @return File path or null if there are no more files
+     * @throws IOException If archive could not be read or is malformed
+     */
+    String nextEntry() throws IOException {
+        String longName = null;
+        while (true) {
+            skipFully(mRemaining + mPadding);
+            mRemaining = 0;
+            mPadding = 0;
+            if (!readHeader()) {
+                return null;
+            }
+
+            long size = parseSize();
+            mRemaining = size;
+            mPadding = (BLOCK_SIZE - size % BLOCK_SIZE) % BLOCK_SIZE;
+            byte type = mHeader[156];
+            if (type == TYPE_FILE || type == TYPE_OLD_FILE || type == TYPE_CONTIGUOUS_FILE) {
+                return longName != null ? longName : parseName();
+            }
+            if (type == TYPE_GNU_LONG_NAME) {
+                longName = trimNul(new String(readEntry(), StandardCharsets.UTF_8));
+            }
+            else if (type == TYPE_PAX_HEADER) {
+                String paxPath = parsePaxPath(readEntry());
+                if (paxPath != null) {
+                    longName = paxPath;
+                }
+            }
+            else {
+                longName = null;
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (mRemaining == 0) {
+            return -1;
+        }
+        int read = mInputStream.read(b, off, (int) Math.min(len, mRemaining));
+        if (read == -1) {
+            throw new EOFException("Unexpected end of tar archive");
+        }
+        mRemaining -= read;
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mInputStream.close();
+    }
+
+    /**
+     * Reads next header block.
+     *
+     * @return False if end of archive is reached
+     * @throws IOException If header is malformed
+     */
+    private boolean readHeader() throws IOException {
+        int length = 0;
+        int read;
+        while (length < BLOCK_SIZE && (read = mInputStream.read(mHeader, length, BLOCK_SIZE - length)) != -1) {
+            length += read;
+        }
+        if (length == 0) {
+            return false;
+        }
+        if (length < BLOCK_SIZE) {
+            throw new EOFException("Unexpected end of tar archive");
+        }
+
+        long checksum = 0;
+        boolean empty = true;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            empty &= mHeader[i] == 0;
+            checksum += i >= 148 && i < 156 ? ' ' : mHeader[i] & 0xFF;
+        }
+        if (empty) {
+            return false;
+        }
+        if (checksum != parseOctal(148, 8)) {
+            throw new IOException("Invalid tar header checksum");
+        }
+        return true;
+    }
+
+    /**
+     * Reads content of long name or extended header entry.
+     *
+     * @return Entry content
+     * @throws IOException If entry is too large
+     */
+    private byte[] readEntry() throws IOException {
+        if (mRemaining > MAX_HEADER_ENTRY_SIZE) {
+            throw new IOException("Tar header entry is too large");
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) mRemaining);
+        byte[] buffer = new byte[BLOCK_SIZE];
+        int read;
+        while ((read = read(buffer, 0, buffer.length)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = mInputStream.skip(count);
+            if (skipped <= 0) {
+                if (mInputStream.read() == -1) {
+                    throw new EOFException("Unexpected end of tar archive");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private String parseName() {
+        String name = parseString(0, 100);
+        if (parseString(257, 5).equals("ustar")) {
+            String prefix = parseString(345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Parses entry size, sizes that do not fit octal field
+     * are stored as big-endian binary number.
+     *
+     * @return Entry size
+     * @throws IOException If size is malformed
+     */
+    private long parseSize() throws IOException {
+        if ((mHeader[124] & 0x80) != 0) {
+            long size = 0;
+            for (int i = 125; i < 136; i++) {
+                size = (size << 8) | (mHeader[i] & 0xFF);
+            }
+            if (size < 0) {
+                throw new IOException("Invalid tar entry size");
+            }
+            return size;
+        }
+        return parseOctal(124, 12);
+    }
+
+    private long parseOctal(int offset, int length) throws IOException {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = mHeader[i];
+            if (b == 0 || b == ' ') {
+                if (value != 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid tar header number");
+            }
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+
+    private String parseString(int offset, int length) {
+        int end = offset;
+        while (end < offset + length && mHeader[end] != 0) {
+            end++;
+        }
+        return new String(mHeader, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds path in pax extended header records
+     * of form "length key=value\n".
+     *
+     * @param records Extended header content
+     * @return Path or null if header has no path
+     * @throws IOException If header is malformed
+     */
+    private static String parsePaxPath(byte[] records) throws IOException {
+        String path = null;
+        int offset = 0;
+        while (offset < records.length) {
+            int space = offset;
+            while (space < records.length && records[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(records, offset, space - offset, StandardCharsets.US_ASCII));
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Malformed pax header", e);
+            }
+            // Length covers its own digits, the space and the trailing new line
+            if (length < space - offset + 2 || offset + length > records.length
+                    || records[offset + length - 1] != '\n') {
+                throw new IOException("Malformed pax header");
+            }
+            String record = new String(records, space + 1, offset + length - space - 2, StandardCharsets.UTF_8);
+            if (record.startsWith("path=")) {
+                path = record.substring("path=".length());
+            }
+            offset += length;
+        }
+        return path;
+    }
+
+    private static String trimNul(String string) {
+        int end = string.indexOf(0);
+        return end == -1 ? string : string.substring(0, end);
+    }
+}
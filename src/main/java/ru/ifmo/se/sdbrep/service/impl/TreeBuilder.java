@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import ru.ifmo.se.sdbrep.model.Tree;
+import ru.ifmo.se.sdbrep.model.TreeEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * This class is used to stage changes of a code tree
+ * in memory before it is persisted.<br>
+ * Child trees and blobs are looked up by name. Subtrees
+ * of the original tree are loaded only when a change
+ * touches them, untouched ones are referenced by id.<br>
+ * Tree id is a hash of its entries, so equal trees have
+ * equal ids and an unchanged tree is never written again.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+final class TreeBuilder {
+
+    private final String mOriginalId;
+    private final Function<String, Tree> mTreeLoader;
+
+    private final Map<String, String> mTrees = new TreeMap<>();
+    private final Map<String, TreeBuilder> mStagedTrees = new TreeMap<>();
+    private final Map<String, String> mBlobs = new TreeMap<>();
+
+    /**
+     * Creates builder of a new empty tree.
+     *
+     * @param treeLoader Function loading original subtrees by id
+     */
+    TreeBuilder(Function<String, Tree> treeLoader) {
+        this(null, treeLoader);
+    }
+
+    /**
+     * Creates builder based on existing tree.
+     *
+     * @param tree Original tree
+     * @param treeLoader Function loading original subtrees by id
+     */
+    TreeBuilder(Tree tree, Function<String, Tree> treeLoader) {
+        mOriginalId = tree == null ? null : tree.getId();
+        mTreeLoader = treeLoader;
+        if (tree != null) {
+            for (TreeEntry entry : tree.getEntries()) {
+                if (entry.getType() == TreeEntry.Type.TREE) {
+                    mTrees.put(entry.getName(), entry.getObjectId());
+                }
+                else {
+                    mBlobs.put(entry.getName(), entry.getObjectId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits file path into its parts skipping
+     * empty ones and current directory references.<br>
+     * Parent directory references are not allowed, so
+     * paths can not point outside of the tree.
+     *
+     * @param path File path
+     * @return Path parts or null if path has parent directory references
+     */
+    static String[] split(String path) {
+        List<String> parts = new ArrayList<>();
+        for (String part : path.split("/")) {
+            if (part.equals("..")) {
+                return null;
+            }
+            if (!part.isEmpty() && !part.equals(".")) {
+                parts.add(part);
+            }
+        }
+        return parts.toArray(new String[0]);
+    }
+
+    /**
+     * Puts blob to the tree by path creating
+     * all missing directories.
+     *
+     * @param path Path parts
+     * @param blobId Blob id
+     * @return Id of replaced blob or null if there was no blob
+     */
+    String put(String[] path, String blobId) {
+        TreeBuilder tree = this;
+        for (int i = 0; i < path.length - 1; i++) {
+            tree = tree.stage(path[i], true);
+        }
+        return tree.mBlobs.put(path[path.length - 1], blobId);
+    }
+
+    /**
+     * Gets id of blob in the tree by path.
+     *
+     * @param path Path parts
+     * @return Blob id or null if there is no blob
+     */
+    String get(String[] path) {
+        TreeBuilder tree = this;
+        for (int i = 0; i < path.length - 1 && tree != null; i++) {
+            tree = tree.stage(path[i], false);
+        }
+        return tree == null ? null : tree.mBlobs.get(path[path.length - 1]);
+    }
+
+    /**
+     * Removes blob from the tree by path.
+     *
+     * @param path Path parts
+     * @return Removed blob id or null if there was no blob
+     */
+    String remove(String[] path) {
+        TreeBuilder tree = this;
+        for (int i = 0; i < path.length - 1 && tree != null; i++) {
+            tree = tree.stage(path[i], false);
+        }
+        return tree == null ? null : tree.mBlobs.remove(path[path.length - 1]);
+    }
+
+    /**
+     * Builds trees staged in this builder.<br>
+     * Empty staged directories are dropped.
+     *
+     * @param created List to add changed trees to, children go before their parents
+     * @return Built {@link Tree}
+     */
+    Tree build(List<Tree> created) {
+        Map<String, String> trees = new TreeMap<>(mTrees);
+        for (Map.Entry<String, TreeBuilder> stagedTree : mStagedTrees.entrySet()) {
+            if (!stagedTree.getValue().isEmpty()) {
+                trees.put(stagedTree.getKey(), stagedTree.getValue().build(created).getId());
+            }
+        }
+
+        Tree tree = new Tree();
+        for (Map.Entry<String, String> entry : trees.entrySet()) {
+            tree.getEntries().add(new TreeEntry(entry.getKey(), TreeEntry.Type.TREE, entry.getValue()));
+        }
+        for (Map.Entry<String, String> entry : mBlobs.entrySet()) {
+            tree.getEntries().add(new TreeEntry(entry.getKey(), TreeEntry.Type.BLOB, entry.getValue()));
+        }
+        tree.setId(hash(tree));
+        if (!tree.getId().equals(mOriginalId)) {
+            created.add(tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Computes tree hash from types, names
+     * and ids of its entries.
+     *
+     * @param tree Tree with sorted entries
+     * @return Tree hash
+     */
+    private static String hash(Tree tree) {
+        List<String> parts = new ArrayList<>();
+        for (TreeEntry entry : tree.getEntries()) {
+            parts.add(entry.getType().name());
+            parts.add(entry.getName());
+            parts.add(entry.getObjectId());
+        }
+        return Hashing.sha256(parts.toArray(new String[0]));
+    }
+
+    private TreeBuilder stage(String dirName, boolean create) {
+        TreeBuilder tree = mStagedTrees.get(dirName);
+        if (tree == null) {
+            String originalId = mTrees.get(dirName);
+            Tree original = originalId == null ? null : mTreeLoader.apply(originalId);
+            if (original != null) {
+                tree = new TreeBuilder(original, mTreeLoader);
+            }
+            else if (create) {
+                tree = new TreeBuilder(mTreeLoader);
+            }
+            else {
+                return null;
+            }
+            mTrees.remove(dirName);
+            mStagedTrees.put(dirName, tree);
+        }
+        return tree;
+    }
+
+    private boolean isEmpty() {
+        if (!mTrees.isEmpty() || !mBlobs.isEmpty()) {
+            return false;
+        }
+        for (TreeBuilder stagedTree : mStagedTrees.values()) {
+            if (!stagedTree.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
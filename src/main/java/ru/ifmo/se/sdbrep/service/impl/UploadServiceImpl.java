@@ -0,0 +1,205 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import ru.ifmo.se.sdbrep.model.Commit;
+import ru.ifmo.se.sdbrep.model.Project;
+import ru.ifmo.se.sdbrep.model.UploadChunk;
+import ru.ifmo.se.sdbrep.model.UploadSession;
+import ru.ifmo.se.sdbrep.repository.UploadChunkRepository;
+import ru.ifmo.se.sdbrep.repository.UploadSessionRepository;
+import ru.ifmo.se.sdbrep.service.CodeService;
+import ru.ifmo.se.sdbrep.service.ProfileService;
+import ru.ifmo.se.sdbrep.service.ProjectService;
+import ru.ifmo.se.sdbrep.service.UploadService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+/**
+ * This class is used as upload app service
+ * that implements {@link UploadService} methods.<br>
+ * Chunks are stored in MongoDB as they come, session
+ * progress is advanced atomically only for the next
+ * chunk. Commit reads chunks one by one, and branch
+ * is changed only when the whole archive is committed.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+@Service
+public class UploadServiceImpl implements UploadService {
+
+    @Value("${uploads.max-chunk-size}")
+    private int PROPERTY_MAX_CHUNK_SIZE;
+
+    @Autowired
+    private MongoTemplate mMongoTemplate;
+
+    @Autowired
+    private UploadSessionRepository mUploadSessionRepository;
+
+    @Autowired
+    private UploadChunkRepository mUploadChunkRepository;
+
+    @Autowired
+    private CodeService mCodeService;
+
+    @Autowired
+    private ProjectService mProjectService;
+
+    @Autowired
+    private ProfileService mProfileService;
+
+    @Override
+    public UploadSession create(String projectName, String branchName) {
+        if (mProjectService.getCurrentByName(projectName) == null) {
+            return null;
+        }
+        return createSession(null, projectName, branchName);
+    }
+
+    @Override
+    public UploadSession create(String profileName, String projectName, String branchName) {
+        Project project = mProjectService.getByProfileUsernameAndName(profileName, projectName);
+        if (project == null || mProjectService.getCurrentRole(project) != Project.Role.COLLABORATOR) {
+            return null;
+        }
+        return createSession(profileName, projectName, branchName);
+    }
+
+    @Override
+    public UploadSession getById(String id) {
+        UploadSession session = mUploadSessionRepository.findById(id).orElse(null);
+        if (session == null || !session.getUsername().equals(mProfileService.getCurrent().getUsername())) {
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public UploadSession putChunk(String id, int index, byte[] content) {
+        UploadSession session = getById(id);
+        if (session == null || index < 0 || index > session.getChunkCount()
+                || content.length > PROPERTY_MAX_CHUNK_SIZE) {
+            return null;
+        }
+        if (index < session.getChunkCount()) {
+            // Chunk has already been received
+            return session;
+        }
+        mUploadChunkRepository.save(new UploadChunk(id, index, content));
+        UploadSession updatedSession = mMongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(id).and("chunkCount").is(index)),
+                new Update().inc("chunkCount", 1).inc("size", content.length),
+                FindAndModifyOptions.options().returnNew(true),
+                UploadSession.class);
+        return updatedSession != null ? updatedSession : getById(id);
+    }
+
+    @Override
+    public Commit commit(String id, String message) {
+        UploadSession session = getById(id);
+        if (session == null || session.getChunkCount() == 0) {
+            return null;
+        }
+        InputStream archive = createArchiveStream(session);
+        Commit commit = session.getProfileName() == null
+                ? mCodeService.commit(session.getProjectName(), session.getBranchName(), archive, message)
+                : mCodeService.commit(session.getProfileName(), session.getProjectName(),
+                        session.getBranchName(), archive, message);
+        if (commit != null) {
+            deleteSession(id);
+        }
+        return commit;
+    }
+
+    @Override
+    public boolean delete(String id) {
+        if (getById(id) == null) {
+            return false;
+        }
+        deleteSession(id);
+        return true;
+    }
+
+    private UploadSession createSession(String profileName, String projectName, String branchName) {
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUsername(mProfileService.getCurrent().getUsername());
+        session.setProfileName(profileName);
+        session.setProjectName(projectName);
+        session.setBranchName(branchName);
+        return mUploadSessionRepository.insert(session);
+    }
+
+    private void deleteSession(String id) {
+        mMongoTemplate.remove(new Query(Criteria.where("sessionId").is(id)), UploadChunk.class);
+        mUploadSessionRepository.deleteById(id);
+    }
+
+    /**
+     * Creates stream of session chunks, each chunk
+     * is loaded when the previous one is read.
+     *
+     * @param session Upload session
+     * @return Archive stream
+     */
+    private InputStream createArchiveStream(UploadSession session) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+
+            private int mIndex;
+
+            @Override
+            public boolean hasMoreElements() {
+                return mIndex < session.getChunkCount();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                if (!hasMoreElements()) {
+                    throw new NoSuchElementException();
+                }
+                String chunkId = UploadChunk.createId(session.getId(), mIndex++);
+                UploadChunk chunk = mUploadChunkRepository.findById(chunkId)
+                        .orElseThrow(() -> new IllegalStateException("Upload chunk " + chunkId + " is missing"));
+                return new ByteArrayInputStream(chunk.getContent());
+            }
+        });
+    }
+}
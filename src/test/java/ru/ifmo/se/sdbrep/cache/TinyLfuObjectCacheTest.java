@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.cache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class is used for testing {@link TinyLfuObjectCache}.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class TinyLfuObjectCacheTest {
+
+    private static final long CAPACITY = 100 * 1000;
+
+    @Test
+    public void keepsFrequentObjectsDuringScan() {
+        ObjectCache<String> cache = new TinyLfuObjectCache<>("test", CAPACITY, value -> 1000);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "hot" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(cache.get("hot" + i));
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            if (cache.get("cold" + i) == null) {
+                cache.put("cold" + i, "cold" + i);
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals("hot" + i, cache.get("hot" + i));
+        }
+        assertTrue(cache.getStats().getWeight() <= CAPACITY);
+    }
+
+    @Test
+    public void rejectsObjectsHeavierThanCapacity() {
+        ObjectCache<String> cache = new TinyLfuObjectCache<>("test", CAPACITY, value -> CAPACITY + 1);
+        cache.put("id", "value");
+        assertNull(cache.get("id"));
+        assertEquals(0, cache.getStats().getSize());
+    }
+
+    @Test
+    public void removesAndReplacesObjects() {
+        ObjectCache<String> cache = new TinyLfuObjectCache<>("test", CAPACITY, value -> 1000);
+        cache.put("id", "first");
+        cache.put("id", "second");
+        assertEquals("second", cache.get("id"));
+        assertEquals(1000, cache.getStats().getWeight());
+        cache.remove("id");
+        assertNull(cache.get("id"));
+        assertEquals(0, cache.getStats().getWeight());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class is used for testing range reads
+ * of {@link ChunkInputStream}.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class ChunkInputStreamTest {
+
+    private static final int CHUNK_SIZE = 1000;
+    private static final int CONTENT_SIZE = 10500;
+
+    private final byte[] mContent = new byte[CONTENT_SIZE];
+    private final List<String> mChunkIds = new ArrayList<>();
+    private final Map<String, byte[]> mChunks = new HashMap<>();
+    private final List<String> mLoadedIds = new ArrayList<>();
+
+    public ChunkInputStreamTest() {
+        new Random(42).nextBytes(mContent);
+        for (int offset = 0; offset < CONTENT_SIZE; offset += CHUNK_SIZE) {
+            String id = "chunk" + offset / CHUNK_SIZE;
+            mChunkIds.add(id);
+            mChunks.put(id, Arrays.copyOfRange(mContent, offset, Math.min(offset + CHUNK_SIZE, CONTENT_SIZE)));
+        }
+    }
+
+    @Test
+    public void readsWholeBlob() {
+        assertArrayEquals(mContent, read(0, CONTENT_SIZE, 4096));
+        assertEquals(mChunkIds, mLoadedIds);
+    }
+
+    @Test
+    public void readsRangeWithinChunk() {
+        assertArrayEquals(Arrays.copyOfRange(mContent, 2100, 2200), read(2100, 100, 4096));
+        assertEquals(Arrays.asList("chunk2"), mLoadedIds);
+    }
+
+    @Test
+    public void readsRangeStartingAtChunkBoundary() {
+        assertArrayEquals(Arrays.copyOfRange(mContent, 3000, 5000), read(3000, 2000, 4096));
+        assertEquals(Arrays.asList("chunk3", "chunk4"), mLoadedIds);
+    }
+
+    @Test
+    public void readsRangeAcrossChunksWithSmallBuffer() {
+        assertArrayEquals(Arrays.copyOfRange(mContent, 999, 4001), read(999, 3002, 7));
+        assertEquals(Arrays.asList("chunk0", "chunk1", "chunk2", "chunk3", "chunk4"), mLoadedIds);
+    }
+
+    @Test
+    public void readsShortLastChunk() {
+        assertArrayEquals(Arrays.copyOfRange(mContent, 9900, CONTENT_SIZE), read(9900, 600, 4096));
+    }
+
+    @Test
+    public void stopsAtEndOfLastChunk() {
+        assertArrayEquals(Arrays.copyOfRange(mContent, 10400, CONTENT_SIZE), read(10400, 1000, 4096));
+    }
+
+    @Test
+    public void readsEmptyRange() {
+        assertArrayEquals(new byte[0], read(5000, 0, 4096));
+        assertEquals(0, mLoadedIds.size());
+    }
+
+    @Test
+    public void readsSingleBytes() {
+        ChunkInputStream in = open(1999, 2);
+        assertEquals(mContent[1999] & 0xFF, in.read());
+        assertEquals(mContent[2000] & 0xFF, in.read());
+        assertEquals(-1, in.read());
+    }
+
+    private ChunkInputStream open(long offset, long length) {
+        return new ChunkInputStream(mChunkIds, CHUNK_SIZE, offset, length, id -> {
+            mLoadedIds.add(id);
+            return mChunks.get(id);
+        });
+    }
+
+    private byte[] read(long offset, long length, int bufferSize) {
+        ChunkInputStream in = open(offset, length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[bufferSize];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.junit.Test;
+import ru.ifmo.se.sdbrep.model.Tree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class is used for testing replaying of
+ * {@link CommitBuilder} changes on top of a branch
+ * head that has been moved concurrently.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class CommitBuilderTest {
+
+    private final Map<String, Tree> mTrees = new HashMap<>();
+
+    @Test
+    public void rebasesOntoUnrelatedChanges() {
+        Tree base = tree(null, "a.txt", "a1", "dir/b.txt", "b1");
+        Tree head = tree(base, "dir/c.txt", "c1", "a.txt", null);
+
+        CommitBuilder builder = builder(base);
+        builder.put(path("dir/b.txt"), "b2");
+        builder.put(path("new/d.txt"), "d1");
+        assertTrue(builder.rebase(head));
+
+        Tree root = build(builder);
+        assertEquals("b2", get(root, "dir/b.txt"));
+        assertEquals("c1", get(root, "dir/c.txt"));
+        assertEquals("d1", get(root, "new/d.txt"));
+        assertNull(get(root, "a.txt"));
+    }
+
+    @Test
+    public void rebasesRemovedAndPutAgainFile() {
+        Tree base = tree(null, "a.txt", "a1");
+        Tree head = tree(base, "b.txt", "b1");
+
+        CommitBuilder builder = builder(base);
+        builder.remove(path("a.txt"));
+        builder.put(path("a.txt"), "a2");
+        assertTrue(builder.rebase(head));
+        assertEquals("a2", get(build(builder), "a.txt"));
+    }
+
+    @Test
+    public void rejectsRebaseOntoChangedFile() {
+        Tree base = tree(null, "a.txt", "a1");
+        Tree head = tree(base, "a.txt", "a2");
+
+        CommitBuilder builder = builder(base);
+        builder.put(path("a.txt"), "a3");
+        assertFalse(builder.rebase(head));
+    }
+
+    @Test
+    public void rejectsRebaseOntoConcurrentlyCreatedFile() {
+        Tree base = tree(null, "a.txt", "a1");
+        Tree head = tree(base, "b.txt", "b1");
+
+        CommitBuilder builder = builder(base);
+        builder.put(path("b.txt"), "b2");
+        assertFalse(builder.rebase(head));
+    }
+
+    @Test
+    public void rejectsRebaseOntoRemovedFile() {
+        Tree base = tree(null, "dir/a.txt", "a1");
+        Tree head = tree(base, "dir/a.txt", null);
+
+        CommitBuilder builder = builder(base);
+        builder.remove(path("dir/a.txt"));
+        assertFalse(builder.rebase(head));
+    }
+
+    @Test
+    public void rebasesAgainAfterRejectedRebase() {
+        Tree base = tree(null, "a.txt", "a1", "b.txt", "b1");
+        Tree conflicting = tree(base, "a.txt", "a2");
+        Tree head = tree(base, "b.txt", "b2");
+
+        CommitBuilder builder = builder(base);
+        builder.put(path("a.txt"), "a3");
+        assertFalse(builder.rebase(conflicting));
+        assertTrue(builder.rebase(head));
+
+        Tree root = build(builder);
+        assertEquals("a3", get(root, "a.txt"));
+        assertEquals("b2", get(root, "b.txt"));
+    }
+
+    private CommitBuilder builder(Tree original) {
+        return new CommitBuilder(original, mTrees::get, null, null);
+    }
+
+    /**
+     * Builds tree by applying changes to the original one.
+     *
+     * @param original Original tree or null
+     * @param changes Pairs of path and blob id, null id removes blob
+     * @return Built root tree
+     */
+    private Tree tree(Tree original, String... changes) {
+        TreeBuilder builder = new TreeBuilder(original, mTrees::get);
+        for (int i = 0; i < changes.length; i += 2) {
+            if (changes[i + 1] == null) {
+                builder.remove(path(changes[i]));
+            }
+            else {
+                builder.put(path(changes[i]), changes[i + 1]);
+            }
+        }
+        List<Tree> created = new ArrayList<>();
+        Tree root = builder.build(created);
+        created.forEach(tree -> mTrees.put(tree.getId(), tree));
+        return root;
+    }
+
+    private Tree build(CommitBuilder builder) {
+        List<Tree> created = new ArrayList<>();
+        Tree root = builder.build(created);
+        created.forEach(tree -> mTrees.put(tree.getId(), tree));
+        return root;
+    }
+
+    private String get(Tree root, String path) {
+        return new TreeBuilder(root, mTrees::get).get(path(path));
+    }
+
+    private static String[] path(String path) {
+        return TreeBuilder.split(path);
+    }
+}
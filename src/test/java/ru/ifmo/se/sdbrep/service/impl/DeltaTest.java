@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class is used for testing {@link Delta}.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class DeltaTest {
+
+    @Test
+    public void restoresTargetWithInsertedAndRemovedLines() {
+        byte[] base = lines(0, 200);
+        byte[] target = (new String(lines(0, 50), StandardCharsets.UTF_8)
+                + "inserted line\n"
+                + new String(lines(60, 200), StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        byte[] delta = Delta.create(base, target);
+        assertArrayEquals(target, Delta.apply(base, delta));
+        assertTrue(delta.length < target.length / 10);
+    }
+
+    @Test
+    public void restoresTargetFromEmptyBase() {
+        byte[] target = lines(0, 10);
+        assertArrayEquals(target, Delta.apply(new byte[0], Delta.create(new byte[0], target)));
+    }
+
+    @Test
+    public void restoresEmptyTarget() {
+        byte[] base = lines(0, 10);
+        assertArrayEquals(new byte[0], Delta.apply(base, Delta.create(base, new byte[0])));
+    }
+
+    @Test
+    public void restoresTargetsShorterThanBlock() {
+        byte[] base = "short base".getBytes(StandardCharsets.UTF_8);
+        byte[] target = "short".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(target, Delta.apply(base, Delta.create(base, target)));
+    }
+
+    @Test
+    public void restoresRandomlyEditedBinaryContent() {
+        Random random = new Random(42);
+        for (int round = 0; round < 50; round++) {
+            byte[] base = new byte[random.nextInt(100000)];
+            random.nextBytes(base);
+            byte[] target = Arrays.copyOf(base, base.length);
+            for (int edit = 0; edit < 10 && target.length > 0; edit++) {
+                int position = random.nextInt(target.length);
+                byte[] inserted = new byte[random.nextInt(300)];
+                random.nextBytes(inserted);
+                int removed = Math.min(random.nextInt(300), target.length - position);
+                byte[] edited = new byte[target.length - removed + inserted.length];
+                System.arraycopy(target, 0, edited, 0, position);
+                System.arraycopy(inserted, 0, edited, position, inserted.length);
+                System.arraycopy(target, position + removed, edited, position + inserted.length,
+                        target.length - position - removed);
+                target = edited;
+            }
+            assertArrayEquals(target, Delta.apply(base, Delta.create(base, target)));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsUnknownInstruction() {
+        Delta.apply(new byte[0], new byte[] {1, 7});
+    }
+
+    private static byte[] lines(int from, int to) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            builder.append("line number ").append(i).append('\n');
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * This class is used for testing {@link Patch}.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class PatchTest {
+
+    private static final String ORIGINAL = "a\nb\nc\nd\ne\nf\ng\nh\n";
+
+    @Test
+    public void appliesHunksWithFileHeaders() {
+        String patch = "--- a/file.txt\n" +
+                "+++ b/file.txt\n" +
+                "@@ -1,3 +1,3 @@\n" +
+                " a\n" +
+                "-b\n" +
+                "+B\n" +
+                " c\n" +
+                "@@ -6,3 +6,4 @@\n" +
+                " f\n" +
+                " g\n" +
+                "+inserted\n" +
+                " h\n";
+        assertEquals("a\nB\nc\nd\ne\nf\ng\ninserted\nh\n", Patch.apply(ORIGINAL, patch));
+    }
+
+    @Test
+    public void appliesInsertionToEmptyFile() {
+        assertEquals("first\nsecond\n", Patch.apply("", "@@ -0,0 +1,2 @@\n+first\n+second\n"));
+    }
+
+    @Test
+    public void appliesDeletionOfAllLines() {
+        assertEquals("", Patch.apply("a\nb\n", "@@ -1,2 +0,0 @@\n-a\n-b\n"));
+    }
+
+    @Test
+    public void appliesHunkWithoutLineCounts() {
+        assertEquals("a\nx\nc\n", Patch.apply("a\nb\nc\n", "@@ -2 +2 @@\n-b\n+x\n"));
+    }
+
+    @Test
+    public void handlesMissingNewlineAtEndOfFile() {
+        String patch = "@@ -2,1 +2,1 @@\n" +
+                "-b\n" +
+                "\\ No newline at end of file\n" +
+                "+b\n";
+        assertEquals("a\nb\n", Patch.apply("a\nb", patch));
+    }
+
+    @Test
+    public void addsMissingNewlineAtEndOfFile() {
+        String patch = "@@ -2,1 +2,1 @@\n" +
+                "-b\n" +
+                "+b\n" +
+                "\\ No newline at end of file\n";
+        assertEquals("a\nb", Patch.apply("a\nb\n", patch));
+    }
+
+    @Test
+    public void returnsOriginalForPatchWithoutHunks() {
+        assertEquals(ORIGINAL, Patch.apply(ORIGINAL, "--- a/file.txt\n+++ b/file.txt\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchingContext() {
+        Patch.apply(ORIGINAL, "@@ -1,2 +1,2 @@\n a\n-x\n+y\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHunkOutOfBounds() {
+        Patch.apply(ORIGINAL, "@@ -20,1 +20,1 @@\n-a\n+b\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOverlappingHunks() {
+        Patch.apply(ORIGINAL, "@@ -2,2 +2,2 @@\n b\n c\n@@ -1,1 +1,1 @@\n-a\n+x\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedHunk() {
+        Patch.apply(ORIGINAL, "@@ -1,3 +1,3 @@\n a\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedLine() {
+        Patch.apply(ORIGINAL, "@@ -1,1 +1,1 @@\n*a\n");
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2018 seniorkot
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package ru.ifmo.se.sdbrep.service.impl;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * This class is used for testing {@link TarInputStream}
+ * on archives built in memory.
+ *
+ * @author seniorkot
+ * @version 1.0
+ * @since 1.0
+ */
+public class TarInputStreamTest {
+
+    private static final int BLOCK_SIZE = 512;
+
+    @Test
+    public void readsFilesAndSkipsUnreadContent() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("first.txt", null, 600, '0'), new byte[600]);
+        writeEntry(archive, header("dir/", null, 0, '5'), new byte[0]);
+        writeEntry(archive, header("dir/second.txt", null, 5, '0'), bytes("hello"));
+        archive.write(new byte[2 * BLOCK_SIZE]);
+
+        TarInputStream in = open(archive);
+        assertEquals("first.txt", in.nextEntry());
+        assertEquals("dir/second.txt", in.nextEntry());
+        assertEquals("hello", readAll(in));
+        assertNull(in.nextEntry());
+    }
+
+    @Test
+    public void joinsUstarPrefixAndName() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("file.txt", "some/long/prefix", 3, '0'), bytes("abc"));
+
+        TarInputStream in = open(archive);
+        assertEquals("some/long/prefix/file.txt", in.nextEntry());
+        assertEquals("abc", readAll(in));
+        assertNull(in.nextEntry());
+    }
+
+    @Test
+    public void usesGnuLongName() throws IOException {
+        String longName = repeat("directory/", 20) + "file.txt";
+        byte[] nameEntry = bytes(longName + "\0");
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("././@LongLink", null, nameEntry.length, 'L'), nameEntry);
+        writeEntry(archive, header(longName.substring(0, 100), null, 1, '0'), bytes("x"));
+        writeEntry(archive, header("short.txt", null, 1, '0'), bytes("y"));
+
+        TarInputStream in = open(archive);
+        assertEquals(longName, in.nextEntry());
+        assertEquals("x", readAll(in));
+        assertEquals("short.txt", in.nextEntry());
+        assertNull(in.nextEntry());
+    }
+
+    @Test
+    public void usesPaxPath() throws IOException {
+        String longName = repeat("каталог/", 20) + "file.txt";
+        byte[] paxEntry = bytes(paxRecord("mtime=1528000000.5") + paxRecord("path=" + longName));
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("PaxHeaders/file.txt", null, paxEntry.length, 'x'), paxEntry);
+        writeEntry(archive, header("file.txt", null, 2, '0'), bytes("ok"));
+
+        TarInputStream in = open(archive);
+        assertEquals(longName, in.nextEntry());
+        assertEquals("ok", readAll(in));
+        assertNull(in.nextEntry());
+    }
+
+    @Test
+    public void readsBase256Size() throws IOException {
+        byte[] header = header("big.bin", null, 0, '0');
+        Arrays.fill(header, 124, 136, (byte) 0);
+        header[124] = (byte) 0x80;
+        header[134] = 0x01;
+        header[135] = 0x02;
+        writeChecksum(header);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header, new byte[0x0102]);
+
+        TarInputStream in = open(archive);
+        assertEquals("big.bin", in.nextEntry());
+        assertEquals(0x0102, readAll(in).length());
+        assertNull(in.nextEntry());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsInvalidChecksum() throws IOException {
+        byte[] header = header("file.txt", null, 0, '0');
+        header[0] = 'F';
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header, new byte[0]);
+        open(archive).nextEntry();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsPaxRecordShorterThanItsPrefix() throws IOException {
+        byte[] paxEntry = bytes("1 path=x\n");
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("PaxHeaders/file.txt", null, paxEntry.length, 'x'), paxEntry);
+        writeEntry(archive, header("file.txt", null, 0, '0'), new byte[0]);
+        open(archive).nextEntry();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsPaxRecordWithoutNewLine() throws IOException {
+        byte[] paxEntry = bytes("12 path=abcd");
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("PaxHeaders/file.txt", null, paxEntry.length, 'x'), paxEntry);
+        writeEntry(archive, header("file.txt", null, 0, '0'), new byte[0]);
+        open(archive).nextEntry();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTooLargeLongName() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("././@LongLink", null, 100000, 'L'), new byte[100000]);
+        open(archive).nextEntry();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedArchive() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        writeEntry(archive, header("file.txt", null, 0, '0'), new byte[0]);
+        archive.write(new byte[] {1, 2, 3});
+        TarInputStream in = open(archive);
+        in.nextEntry();
+        in.nextEntry();
+    }
+
+    private static byte[] header(String name, String prefix, long size, char type) {
+        byte[] header = new byte[BLOCK_SIZE];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 124, String.format("%011o", size));
+        put(header, 136, "00000000000");
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        if (prefix != null) {
+            put(header, 345, prefix);
+        }
+        writeChecksum(header);
+        return header;
+    }
+
+    private static void writeChecksum(byte[] header) {
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xFF;
+        }
+        put(header, 148, String.format("%06o", checksum));
+        header[154] = 0;
+    }
+
+    private static void writeEntry(ByteArrayOutputStream archive, byte[] header, byte[] content) throws IOException {
+        archive.write(header);
+        archive.write(content);
+        archive.write(new byte[(BLOCK_SIZE - content.length % BLOCK_SIZE) % BLOCK_SIZE]);
+    }
+
+    private static String paxRecord(String keyValue) {
+        int length = bytes(keyValue).length + 3;
+        while (String.valueOf(length).length() + bytes(keyValue).length + 2 != length) {
+            length++;
+        }
+        return length + " " + keyValue + "\n";
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = bytes(value);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String repeat(String string, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(string);
+        }
+        return builder.toString();
+    }
+
+    private static TarInputStream open(ByteArrayOutputStream archive) {
+        return new TarInputStream(new ByteArrayInputStream(archive.toByteArray()));
+    }
+
+    private static String readAll(TarInputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[100];
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}